@@ -0,0 +1,37 @@
+-- Tables used by TicketDao, as they existed before the schema was versioned.
+
+CREATE TABLE users
+(
+  id         BIGINT       NOT NULL AUTO_INCREMENT,
+  firstName  VARCHAR(100),
+  lastName   VARCHAR(100),
+  email      VARCHAR(255),
+  password   VARCHAR(100) NOT NULL,
+  role       VARCHAR(20)  NOT NULL,
+  username   VARCHAR(100) NOT NULL,
+  typeOfCard VARCHAR(20)  NOT NULL,
+  PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE train
+(
+  id           BIGINT         NOT NULL AUTO_INCREMENT,
+  town1        VARCHAR(100)   NOT NULL,
+  town2        VARCHAR(100)   NOT NULL,
+  distance     INT,
+  initialPrice DECIMAL(10, 2),
+  PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE ticket
+(
+  id                 BIGINT         NOT NULL AUTO_INCREMENT,
+  user_id            BIGINT         NOT NULL,
+  train_id           BIGINT         NOT NULL,
+  startDate          DATETIME       NOT NULL,
+  endDate            DATETIME,
+  dateAfterSevenDays DATETIME       NOT NULL,
+  is_pays            CHAR(1)        NOT NULL DEFAULT 'N',
+  priceWithDiscount  DECIMAL(10, 2),
+  PRIMARY KEY (id)
+) ENGINE = InnoDB;
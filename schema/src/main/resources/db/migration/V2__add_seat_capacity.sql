@@ -0,0 +1,13 @@
+-- Seat limits of the trains, read by SeatCapacityTracker.
+
+-- NULL for trains without a seat limit, which is every train that existed before
+ALTER TABLE train ADD seats INT NULL;
+
+-- one row per train and day, locked by the seat reservation
+CREATE TABLE train_departure
+(
+  train_id      BIGINT NOT NULL,
+  departureDate DATE   NOT NULL,
+  version       BIGINT NOT NULL DEFAULT 0,
+  PRIMARY KEY (train_id, departureDate)
+) ENGINE = InnoDB;
@@ -0,0 +1,14 @@
+-- Registration did not check the usernames before the schema was versioned, so an existing database can hold the same
+-- username more than once and the unique index of V4 could not be created.
+--
+-- The oldest account keeps the username, every later one is renamed to <username>#<id>. Their tickets stay with them
+-- since they reference the id. Nobody could log in reliably with a duplicated username, the renamed users have to be
+-- told their new username. Find them after the migration with: SELECT id, username FROM users WHERE username LIKE '%#%'
+
+UPDATE users u
+  JOIN (SELECT username, MIN(id) AS keptId
+        FROM users
+        GROUP BY username
+        HAVING COUNT(*) > 1) duplicate ON duplicate.username = u.username
+SET u.username = CONCAT(LEFT(u.username, 80), '#', u.id)
+WHERE u.id <> duplicate.keptId;
@@ -0,0 +1,16 @@
+-- Indexes for the lookups of TicketDao, checked by QueryPlanTest.
+
+-- findByUsername, registration of a taken username fails instead of creating a duplicate, V3 removed the old ones
+CREATE UNIQUE INDEX ux_users_username ON users (username);
+
+-- getPriceOfTicket and loadTowns, initialPrice is read from the index only
+CREATE INDEX ix_train_towns ON train (town1, town2, initialPrice);
+
+-- the reservations of a user: listing, paging, bulk pay
+CREATE INDEX ix_ticket_user_unpaid ON ticket (user_id, is_pays, startDate);
+
+-- ExpiredReservationSweeper and the rebuild of the payment holds, both read only unpaid tickets
+CREATE INDEX ix_ticket_unpaid_expiry ON ticket (is_pays, dateAfterSevenDays);
+
+-- tickets sold per train and day for the free seats
+CREATE INDEX ix_ticket_train_day ON ticket (train_id, startDate);
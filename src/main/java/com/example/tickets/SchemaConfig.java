@@ -0,0 +1,21 @@
+package com.example.tickets;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The schema is migrated by Flyway on startup from the migrations of the {@code schema} module.
+ */
+@Configuration
+public class SchemaConfig
+{
+  //databases created by hand before the migrations already have the V1 tables, they only get the later versions
+  @Bean
+  public FlywayConfigurationCustomizer baselineExistingSchema()
+  {
+    return configuration -> configuration
+        .baselineOnMigrate(true)
+        .baselineVersion("1");
+  }
+}
@@ -1,13 +1,26 @@
 package com.example.tickets;
 
 import com.example.tickets.bean.*;
+import com.example.tickets.enums.DestinationFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
@@ -17,12 +30,17 @@ import java.util.List;
 @RequestMapping("/api/be/ticket")
 public class TicketController
 {
+  private static final String    NDJSON_VALUE = "application/x-ndjson";
+  private static final MediaType NDJSON       = MediaType.parseMediaType(NDJSON_VALUE);
+
   private final TicketService service;
+  private final ObjectMapper  objectMapper;
 
   @Autowired
-  public TicketController(TicketService service)
+  public TicketController(TicketService service, ObjectMapper objectMapper)
   {
     this.service = service;
+    this.objectMapper = objectMapper;
   }
 
   @PostMapping("/registration")
@@ -31,12 +49,27 @@ public class TicketController
     service.registration(information);
   }
 
+  //corporate onboarding, one result per record in the order of the request
+  @PostMapping("/registration/bulk")
+  @PreAuthorize("hasRole('ADMIN')")
+  public List<RegistrationResult> bulkRegistration(@RequestBody List<Registration> registrations)
+  {
+    return service.bulkRegistration(registrations);
+  }
+
   @GetMapping("/available/destinations")
   public List<Town> loadAvailableDestinations()
   {
     return service.loadAvailableDestinations();
   }
 
+  @GetMapping("/available/destinations/search")
+  public List<String> searchTowns(@RequestParam(defaultValue = "") String prefix,
+                                  @RequestParam(defaultValue = "10") int limit)
+  {
+    return service.searchTowns(prefix, limit);
+  }
+
 
   @PostMapping("/available/destination")
   @PreAuthorize("hasRole('ADMIN')")
@@ -45,6 +78,21 @@ public class TicketController
     service.addAvailableDestination(destination);
   }
 
+  //the body is read line by line, a timetable of any size can be sent
+  @PostMapping(value = "/available/destinations/import", consumes = "text/csv")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ImportResult importDestinationsCsv(InputStream body)
+  {
+    return service.importDestinations(reader(body), DestinationFormat.CSV);
+  }
+
+  @PostMapping(value = "/available/destinations/import", consumes = NDJSON_VALUE)
+  @PreAuthorize("hasRole('ADMIN')")
+  public ImportResult importDestinationsJsonLines(InputStream body)
+  {
+    return service.importDestinations(reader(body), DestinationFormat.JSON_LINES);
+  }
+
 
   @GetMapping("/price")
   public BigDecimal getPriceOfTicket(@RequestParam @DateTimeFormat(pattern = "HH:mm:ss") LocalTime diapasonTime,
@@ -56,14 +104,65 @@ public class TicketController
     return service.getPriceOfTicket(diapasonTime, townFrom, townTo, wayOfTrip, isThereChild);
   }
 
+  @PostMapping("/price/batch")
+  public List<BigDecimal> getPricesOfTickets(@RequestBody List<PriceRequest> requests)
+  {
+    return service.getPricesOfTickets(requests);
+  }
+
+  @GetMapping("/route")
+  public Route findRoute(@RequestParam String townFrom,
+                         @RequestParam String townTo,
+                         @RequestParam(defaultValue = "CHEAPEST") String criteria)
+  {
+    return service.findRoute(townFrom, townTo, criteria);
+  }
+
+  @GetMapping("/statistics/quote-cache")
+  @PreAuthorize("hasRole('ADMIN')")
+  public CacheStatistics getQuoteCacheStatistics()
+  {
+    return service.getQuoteCacheStatistics();
+  }
+
+  //hits are the BCrypt checks the HTTP Basic credential cache saved
+  @GetMapping("/statistics/auth-cache")
+  @PreAuthorize("hasRole('ADMIN')")
+  public CacheStatistics getAuthCacheStatistics()
+  {
+    return service.getAuthCacheStatistics();
+  }
+
+  @GetMapping("/statistics/sweeper")
+  @PreAuthorize("hasRole('ADMIN')")
+  public SweepStatistics getSweeperStatistics()
+  {
+    return service.getSweeperStatistics();
+  }
+
+  //time, rows and errors per TicketDao statement, the statement with the most total time first
+  @GetMapping("/statistics/queries")
+  @PreAuthorize("hasRole('ADMIN')")
+  public List<QueryStatistics> getQueryStatistics()
+  {
+    return service.getQueryStatistics();
+  }
+
+  @GetMapping("/statistics/datasources")
+  @PreAuthorize("hasRole('ADMIN')")
+  public List<DataSourceStatistics> getDataSourceStatistics()
+  {
+    return service.getDataSourceStatistics();
+  }
+
   @PostMapping("/reservation/ticket")
-  public void reservation(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd'T'HH:mm") LocalDateTime startDate,
-                          @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd'T'HH:mm") LocalDateTime endDate,
-                          @RequestParam BigDecimal priceWithDiscount,
-                          @RequestParam Long trainId,
-                          @RequestParam int numberOfTickets)
+  public List<Long> reservation(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd'T'HH:mm") LocalDateTime startDate,
+                                @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd'T'HH:mm") LocalDateTime endDate,
+                                @RequestParam BigDecimal priceWithDiscount,
+                                @RequestParam Long trainId,
+                                @RequestParam int numberOfTickets)
   {
-    service.reservation(startDate, endDate, priceWithDiscount, trainId, numberOfTickets);
+    return service.reservation(startDate, endDate, priceWithDiscount, trainId, numberOfTickets);
   }
 
   @GetMapping("/reservations")
@@ -72,12 +171,27 @@ public class TicketController
     return service.loadAllReservationsOfUser();
   }
 
+  @GetMapping("/reservations/page")
+  public Page<Ticket> loadReservationsPage(@RequestParam(required = false) String cursor,
+                                           @RequestParam(defaultValue = "${tickets.reservations.page-size:50}")
+                                               int limit)
+  {
+    return service.loadReservationsPage(cursor, limit);
+  }
+
   @PatchMapping("/pay/{ticketId}")
   public void payTicket(@PathVariable Long ticketId)
   {
     service.payTicket(ticketId);
   }
 
+  //pays a group booking with one request, one result per ticket id
+  @PatchMapping("/pay")
+  public List<PaymentResult> payTickets(@RequestBody List<Long> ticketIds)
+  {
+    return service.payTickets(ticketIds);
+  }
+
   @PatchMapping("/reservation/{idOfReservation}")
   public void refactorReservation(@PathVariable Long idOfReservation,
                                   @RequestParam String day1,
@@ -102,6 +216,59 @@ public class TicketController
     return service.loadUsers();
   }
 
+  @GetMapping("/users/page")
+  @PreAuthorize("hasAnyRole('ADMIN')")
+  public Page<UserInformation> loadUsersPage(@RequestParam(required = false) Long cursor,
+                                             @RequestParam(defaultValue = "${tickets.users.page-size:100}") int size)
+  {
+    return service.loadUsersPage(cursor, size);
+  }
+
+  //the same JSON array as /users, written row by row while the users are read
+  @GetMapping("/users/stream")
+  @PreAuthorize("hasAnyRole('ADMIN')")
+  public ResponseEntity<StreamingResponseBody> streamUsers()
+  {
+    StreamingResponseBody body = out -> {
+      try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+        generator.writeStartArray();
+        service.streamUsers(user -> writeObject(generator, user));
+        generator.writeEndArray();
+      }
+    };
+    return ResponseEntity
+        .ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(body);
+  }
+
+  //one JSON object per line, for the reporting jobs
+  @GetMapping("/export/tickets")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<StreamingResponseBody> exportTickets(
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+      @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to,
+      @RequestParam(required = false) Boolean paid)
+  {
+    //checked here, once the export streams an error can't change the response status anymore
+    if (null != from && null != to && from.isAfter(to)) {
+      throw new IllegalArgumentException("The start of the period must be before its end!");
+    }
+    StreamingResponseBody body = out -> {
+      try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+        generator.setRootValueSeparator(null);
+        service.exportTickets(from, to, paid, ticket -> {
+          writeObject(generator, ticket);
+          writeNewLine(generator);
+        });
+      }
+    };
+    return ResponseEntity
+        .ok()
+        .contentType(NDJSON)
+        .body(body);
+  }
+
 
   //only ADMIN
   @PatchMapping("/refactor/{userId}")
@@ -112,4 +279,30 @@ public class TicketController
   {
     service.refactorUserProfile(userId, email);
   }
+
+  private static void writeNewLine(JsonGenerator generator)
+  {
+    try {
+      generator.writeRaw('\n');
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void writeObject(JsonGenerator generator, Object value)
+  {
+    try {
+      generator.writeObject(value);
+    }
+    catch (IOException e) {
+      //the client went away, stops reading the rows
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static BufferedReader reader(InputStream body)
+  {
+    return new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+  }
 }
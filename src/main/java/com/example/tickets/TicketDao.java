@@ -3,28 +3,66 @@ package com.example.tickets;
 import com.example.tickets.bean.*;
 import com.example.tickets.enums.CardType;
 import com.example.tickets.enums.Role;
+import com.example.tickets.jdbc.InstrumentedNamedParameterJdbcTemplate;
+import com.example.tickets.jdbc.QueryMetrics;
+import com.example.tickets.jdbc.StreamingJdbcTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Repository
 public class TicketDao
 {
+  static final int MAX_TICKETS_PER_INSERT = 500;
+  static final int MAX_USERS_PER_BATCH    = 1000;
+
+  private static final RowMapper<UserInformation> USER_INFORMATION = (rs, rowNum) -> UserInformation
+      .builder()
+      .userId(rs.getLong("id"))
+      .firstName(rs.getString("firstName"))
+      .lastName(rs.getString("lastName"))
+      .email(rs.getString("email"))
+      .role(rs.getString("role"))
+      .username(rs.getString("username"))
+      .typeOfCard(rs.getString("typeOfCard"))
+      .build();
+
   private NamedParameterJdbcTemplate template;
+  //rows are read one by one from the server instead of loading the whole result set into memory
+  private NamedParameterJdbcTemplate streamingTemplate;
 
   @Autowired
-  public TicketDao(NamedParameterJdbcTemplate template)
+  public TicketDao(NamedParameterJdbcTemplate template, QueryMetrics queryMetrics)
   {
     this.template = template;
+
+    JdbcTemplate streaming = new StreamingJdbcTemplate(template.getJdbcTemplate().getDataSource());
+    this.streamingTemplate = new InstrumentedNamedParameterJdbcTemplate(streaming, queryMetrics);
   }
 
   public void registration(UserRegistrationDetail detail)
@@ -57,6 +95,107 @@ public class TicketDao
     template.update(sql, source);
   }
 
+  /**
+   * Inserts the users in JDBC batches of {@link #MAX_USERS_PER_BATCH}. A user whose username is taken is skipped by
+   * the unique index on {@code users.username} instead of failing the batch.
+   *
+   * @return for every user if it was inserted
+   */
+  public boolean[] batchRegistration(List<UserRegistrationDetail> details)
+  {
+    String sql = "" +
+        " INSERT IGNORE INTO users(firstName,      " +
+        "                          lastName,       " +
+        "                          email,          " +
+        "                          password,       " +
+        "                          role,           " +
+        "                          username,       " +
+        "                          typeOfCard)     " +
+        " VALUES(:firstName,                       " +
+        "        :lastName,                        " +
+        "        :email,                           " +
+        "        :password,                        " +
+        "        :role,                            " +
+        "        :username,                        " +
+        "        :typeOfCard)                      ";
+
+    boolean[] inserted = new boolean[details.size()];
+    for (int from = 0; from < details.size(); from += MAX_USERS_PER_BATCH) {
+      int to = Math.min(from + MAX_USERS_PER_BATCH, details.size());
+      SqlParameterSource[] sources = new SqlParameterSource[to - from];
+      for (int i = from; i < to; i++) {
+        UserRegistrationDetail detail = details.get(i);
+        sources[i - from] = new MapSqlParameterSource()
+            .addValue("firstName", detail.getFirstName())
+            .addValue("lastName", detail.getLastName())
+            .addValue("email", detail.getEmail())
+            .addValue("password", detail.getPassword())
+            .addValue("role", detail.getRole().toString())
+            .addValue("username", detail.getUsername())
+            .addValue("typeOfCard", detail.getTypeOfCard().toString());
+      }
+
+      int[] rows = template.batchUpdate(sql, sources);
+      List<UserRegistrationDetail> unknown = new ArrayList<>();
+      for (int i = 0; i < rows.length; i++) {
+        //0 rows is an ignored duplicate
+        inserted[from + i] = rows[i] > 0;
+        if (rows[i] < 0) {
+          unknown.add(details.get(from + i));
+        }
+      }
+      //a driver answering SUCCESS_NO_INFO doesn't tell an ignored duplicate, the row is ours if it has our hash
+      if (!unknown.isEmpty()) {
+        Map<String, String> passwords = loadPasswords(unknown);
+        for (int i = 0; i < rows.length; i++) {
+          if (rows[i] < 0) {
+            UserRegistrationDetail detail = details.get(from + i);
+            inserted[from + i] = detail.getPassword().equals(
+                passwords.get(detail.getUsername().toLowerCase(Locale.ROOT)));
+          }
+        }
+      }
+    }
+    return inserted;
+  }
+
+  /**
+   * @return the usernames among {@code usernames} that are already taken, as they are stored
+   */
+  //keyed by the username in lower case, the database compares the usernames without the case
+  private Map<String, String> loadPasswords(List<UserRegistrationDetail> details)
+  {
+    String sql = "" +
+        " SELECT username, password         " +
+        "   FROM users                      " +
+        " WHERE username IN (:usernames)    ";
+
+    List<String> usernames = new ArrayList<>();
+    details.forEach(detail -> usernames.add(detail.getUsername()));
+
+    Map<String, String> passwords = new HashMap<>();
+    template.query(sql, new MapSqlParameterSource("usernames", usernames), (RowCallbackHandler) rs ->
+        passwords.put(rs.getString("username").toLowerCase(Locale.ROOT), rs.getString("password")));
+    return passwords;
+  }
+
+  public Set<String> findExistingUsernames(Collection<String> usernames)
+  {
+    String sql = "" +
+        " SELECT username                   " +
+        "   FROM users                      " +
+        " WHERE username IN (:usernames)    ";
+
+    Set<String> existing = new HashSet<>();
+    List<String> all = new ArrayList<>(usernames);
+    for (int from = 0; from < all.size(); from += MAX_USERS_PER_BATCH) {
+      MapSqlParameterSource source = new MapSqlParameterSource()
+          .addValue("usernames", all.subList(from, Math.min(from + MAX_USERS_PER_BATCH, all.size())));
+      template.query(sql, source, (RowCallbackHandler) rs -> existing.add(rs.getString("username")));
+    }
+    return existing;
+  }
+
   public List<Town> loadAvailableDestinations()
   {
     String sql = "" +
@@ -69,41 +208,118 @@ public class TicketDao
             .build());
   }
 
+  public List<Train> loadTrains()
+  {
+    String sql = "" +
+        " SELECT id,              " +
+        "        town1,           " +
+        "        town2,           " +
+        "        distance,        " +
+        "        initialPrice     " +
+        "   FROM train            " +
+        " ORDER BY id             ";
+    return template.query(sql, new MapSqlParameterSource(), (rs, rowNum) ->
+        Train.builder()
+            .id(rs.getLong("id"))
+            .town1(rs.getString("town1"))
+            .town2(rs.getString("town2"))
+            .distance(rs.getInt("distance"))
+            .initialPrice(rs.getBigDecimal("initialPrice"))
+            .build());
+  }
+
   public void addAvailableDestination(DestinationInfo destinationInfo)
   {
     String sql = "" +
         " INSERT INTO train (distance, town1, town2, initialPrice)" +
-        "VALUES (:distance, town1, town2, initialPrice)";
+        " VALUES (:distance, :town1, :town2, :initialPrice)      ";
 
-    MapSqlParameterSource source = new MapSqlParameterSource()
-        .addValue("distance", destinationInfo.getDistance())
-        .addValue("town1", destinationInfo.getTown1())
-        .addValue("town2", destinationInfo.getTown2())
-        .addValue("initialPrice", destinationInfo.getInitialPrice());
+    template.update(sql, destinationSource(destinationInfo));
+  }
 
-    template.update(sql, source);
+  /**
+   * Updates the distance and the price of the routes that exist and inserts the others, one JDBC batch per
+   * statement.
+   *
+   * @return the number of inserted routes
+   */
+  public int upsertDestinations(List<DestinationInfo> destinations)
+  {
+    String update = "" +
+        " UPDATE train                       " +
+        "    SET distance = :distance,       " +
+        "        initialPrice = :initialPrice" +
+        "  WHERE town1 = :town1              " +
+        "    AND town2 = :town2              ";
+
+    SqlParameterSource[] sources = new SqlParameterSource[destinations.size()];
+    for (int i = 0; i < sources.length; i++) {
+      sources[i] = destinationSource(destinations.get(i));
+    }
+    int[] updated = template.batchUpdate(update, sources);
+
+    //Connector/J reports the matched rows, 0 means the route doesn't exist yet
+    List<SqlParameterSource> missing = new ArrayList<>();
+    List<Integer> unknown = new ArrayList<>();
+    for (int i = 0; i < updated.length; i++) {
+      if (0 == updated[i]) {
+        missing.add(sources[i]);
+      }
+      else if (updated[i] < 0) {
+        unknown.add(i);
+      }
+    }
+    //a driver answering SUCCESS_NO_INFO doesn't tell whether the route exists, it is looked up
+    if (!unknown.isEmpty()) {
+      List<DestinationInfo> unknownDestinations = new ArrayList<>();
+      unknown.forEach(i -> unknownDestinations.add(destinations.get(i)));
+      Set<String> existing = findExistingRoutes(unknownDestinations);
+      for (Integer i : unknown) {
+        if (!existing.contains(routeKey(destinations.get(i).getTown1(), destinations.get(i).getTown2()))) {
+          missing.add(sources[i]);
+        }
+      }
+    }
+    if (missing.isEmpty()) {
+      return 0;
+    }
+
+    String insert = "" +
+        " INSERT INTO train (distance, town1, town2, initialPrice)" +
+        " VALUES (:distance, :town1, :town2, :initialPrice)      ";
+    template.batchUpdate(insert, missing.toArray(new SqlParameterSource[0]));
+    return missing.size();
   }
 
-  public BigDecimal getPriceOfTicket(String townFrom, String townTo)
+  private Set<String> findExistingRoutes(List<DestinationInfo> destinations)
   {
     String sql = "" +
-        " SELECT initialPrice       " +
-        "   FROM train              " +
-        " WHERE town1 = :townFrom   ";
-    if (null != townTo && !"".equals(townTo)) {
-      sql += "   AND town2 = :townTo      ";
-    }
+        " SELECT town1, town2                " +
+        "   FROM train                       " +
+        " WHERE (town1, town2) IN (:routes)  ";
 
-    MapSqlParameterSource source = new MapSqlParameterSource()
-        .addValue("townFrom", townFrom)
-        .addValue("townTo", townTo);
+    List<Object[]> routes = new ArrayList<>();
+    destinations.forEach(destination -> routes.add(new Object[]{destination.getTown1(), destination.getTown2()}));
 
-    try {
-      return template.queryForObject(sql, source, BigDecimal.class);
-    }
-    catch (EmptyResultDataAccessException e) {
-      return BigDecimal.ZERO;
-    }
+    Set<String> existing = new HashSet<>();
+    template.query(sql, new MapSqlParameterSource("routes", routes),
+        (RowCallbackHandler) rs -> existing.add(routeKey(rs.getString("town1"), rs.getString("town2"))));
+    return existing;
+  }
+
+  //the towns are compared like the database compares them, without the case
+  private static String routeKey(String town1, String town2)
+  {
+    return (town1 + '\n' + town2).toLowerCase(Locale.ROOT);
+  }
+
+  private static MapSqlParameterSource destinationSource(DestinationInfo destinationInfo)
+  {
+    return new MapSqlParameterSource()
+        .addValue("distance", destinationInfo.getDistance())
+        .addValue("town1", destinationInfo.getTown1())
+        .addValue("town2", destinationInfo.getTown2())
+        .addValue("initialPrice", destinationInfo.getInitialPrice());
   }
 
   public void reservation(Long userId, LocalDateTime startDate, LocalDateTime endDate,
@@ -135,7 +351,123 @@ public class TicketDao
     template.update(sql, source);
   }
 
-  public List<Ticket> loadAllReservationsOfUser(Long userId)
+  /**
+   * Inserts all tickets of a group booking with one multi-row INSERT per {@link #MAX_TICKETS_PER_INSERT} tickets.
+   *
+   * @return the generated ticket ids
+   */
+  public List<Long> batchReservation(Long userId, LocalDateTime startDate, LocalDateTime endDate,
+                                     BigDecimal priceWithDiscount, Long trainId, int numberOfTickets)
+  {
+    MapSqlParameterSource source = new MapSqlParameterSource()
+        .addValue("user_id", userId)
+        .addValue("startDate", startDate)
+        .addValue("endDate", endDate)
+        .addValue("priceWithDiscount", priceWithDiscount)
+        .addValue("train_id", trainId);
+
+    List<Long> ticketIds = new ArrayList<>();
+    for (int inserted = 0; inserted < numberOfTickets; inserted += MAX_TICKETS_PER_INSERT) {
+      int rows = Math.min(MAX_TICKETS_PER_INSERT, numberOfTickets - inserted);
+      StringBuilder sql = new StringBuilder();
+      sql.append(
+          " INSERT INTO ticket (user_id,                                      " +
+              "                     startDate,                                    " +
+              "                     endDate,                                      " +
+              "                     dateAfterSevenDays,                           " +
+              "                     is_pays,                                      " +
+              "                     priceWithDiscount,                            " +
+              "                     train_id)                                     " +
+              " VALUES                                                            ");
+      for (int i = 0; i < rows; i++) {
+        sql.append(0 == i ? "" : ",");
+        sql.append(" (:user_id, :startDate, :endDate, date_add(:startDate,Interval 7 day), 'N', " +
+            ":priceWithDiscount, :train_id)");
+      }
+
+      KeyHolder keyHolder = new GeneratedKeyHolder();
+      template.update(sql.toString(), source, keyHolder, new String[]{"id"});
+      for (Map<String, Object> keys : keyHolder.getKeyList()) {
+        ticketIds.add(((Number) keys.values().iterator().next()).longValue());
+      }
+    }
+    return ticketIds;
+  }
+
+  /**
+   * @return the seats of the train left for the day or {@code null} if the train has no seat limit
+   */
+  public Integer loadFreeSeats(Long trainId, LocalDate departureDate)
+  {
+    String sql = "" +
+        " SELECT t.seats - (SELECT COUNT(1)                                " +
+        "                     FROM ticket tik                              " +
+        "                    WHERE tik.train_id = t.id                     " +
+        "                      AND tik.startDate >= :dayStart              " +
+        "                      AND tik.startDate < :nextDay) AS freeSeats  " +
+        "   FROM train t                                                   " +
+        " WHERE t.id = :trainId                                            ";
+
+    MapSqlParameterSource source = new MapSqlParameterSource()
+        .addValue("trainId", trainId)
+        .addValue("dayStart", departureDate.atStartOfDay())
+        .addValue("nextDay", departureDate.plusDays(1).atStartOfDay());
+
+    try {
+      return template.queryForObject(sql, source, Integer.class);
+    }
+    catch (EmptyResultDataAccessException e) {
+      return null;
+    }
+  }
+
+  public void addDeparture(Long trainId, LocalDate departureDate)
+  {
+    String sql = "" +
+        " INSERT IGNORE INTO train_departure (train_id, departureDate, version) " +
+        " VALUES (:trainId, :departureDate, 0)                                  ";
+
+    MapSqlParameterSource source = new MapSqlParameterSource()
+        .addValue("trainId", trainId)
+        .addValue("departureDate", departureDate);
+
+    template.update(sql, source);
+  }
+
+  /**
+   * Takes the seats only if the tickets already sold for the day still leave room for them. The update locks the
+   * departure row, so bookings on the same train and day are serialized and other trains are not touched.
+   *
+   * @return {@code false} if there are not enough free seats
+   */
+  public boolean reserveSeats(Long trainId, LocalDate departureDate, int numberOfSeats)
+  {
+    String sql = "" +
+        " UPDATE train_departure td                                       " +
+        "   JOIN train t ON t.id = td.train_id                            " +
+        "    SET td.version = td.version + 1                              " +
+        " WHERE td.train_id = :trainId                                    " +
+        "   AND td.departureDate = :departureDate                         " +
+        "   AND (SELECT COUNT(1)                                          " +
+        "          FROM ticket tik                                        " +
+        "         WHERE tik.train_id = :trainId                           " +
+        "           AND tik.startDate >= :dayStart                        " +
+        "           AND tik.startDate < :nextDay) + :numberOfSeats <= t.seats ";
+
+    MapSqlParameterSource source = new MapSqlParameterSource()
+        .addValue("trainId", trainId)
+        .addValue("departureDate", departureDate)
+        .addValue("dayStart", departureDate.atStartOfDay())
+        .addValue("nextDay", departureDate.plusDays(1).atStartOfDay())
+        .addValue("numberOfSeats", numberOfSeats);
+
+    return template.update(sql, source) > 0;
+  }
+
+  /**
+   * @return the unpaid tickets of the user whose time for payment hasn't ended, ordered by (startDate, id)
+   */
+  public List<Ticket> loadAllReservationsOfUser(Long userId, LocalDateTime now)
   {
     String sql = "" +
         " SELECT tik.id AS id,                        " +
@@ -147,9 +479,73 @@ public class TicketDao
         "FROM ticket tik                              " +
         "         JOIN train t on tik.train_id = t.id " +
         "WHERE is_pays = 'N'                          " +
-        "  AND user_id = :userId                      ";
+        "  AND user_id = :userId                      " +
+        "  AND dateAfterSevenDays >= :now             " +
+        "ORDER BY tik.startDate, tik.id               ";
+
+    MapSqlParameterSource source = new MapSqlParameterSource()
+        .addValue("userId", userId)
+        .addValue("now", now);
 
-    return template.query(sql, new MapSqlParameterSource("userId", userId), (rs, rowNum) -> Ticket
+    return template.query(sql, source, (rs, rowNum) -> mapTicket(rs));
+  }
+
+  /**
+   * Keyset page of {@link #loadAllReservationsOfUser}.
+   *
+   * @param after last reservation of the previous page, {@code null} for the first page
+   */
+  public Page<Ticket> loadReservationsPage(Long userId, LocalDateTime now, ReservationCursor after, int limit)
+  {
+    StringBuilder sql = new StringBuilder();
+    sql.append(
+        " SELECT tik.id AS id,                        " +
+            " t.initialPrice AS price,                    " +
+            " tik.startDate AS startDate,                 " +
+            " t.distance AS distance,                     " +
+            " t.town1 AS town1,                           " +
+            " t.town2 AS town2                            " +
+            "FROM ticket tik                              " +
+            "         JOIN train t on tik.train_id = t.id " +
+            "WHERE is_pays = 'N'                          " +
+            "  AND user_id = :userId                      " +
+            "  AND dateAfterSevenDays >= :now             ");
+    MapSqlParameterSource source = new MapSqlParameterSource()
+        .addValue("userId", userId)
+        .addValue("now", now)
+        .addValue("limit", limit + 1);
+    if (null != after) {
+      sql.append("  AND (tik.startDate > :afterStartDate                              " +
+          "    OR (tik.startDate = :afterStartDate AND tik.id > :afterId))  ");
+      source.addValue("afterStartDate", after.getStartDate());
+      source.addValue("afterId", after.getId());
+    }
+    sql.append("ORDER BY tik.startDate, tik.id LIMIT :limit ");
+
+    //one row more than asked tells if there is a next page
+    List<Ticket> tickets = new ArrayList<>();
+    //the cursor needs the whole startDate, Ticket keeps only the day
+    ReservationCursor[] last = new ReservationCursor[1];
+    boolean[] hasNext = {false};
+    template.query(sql.toString(), source, (RowCallbackHandler) rs -> {
+      if (tickets.size() == limit) {
+        hasNext[0] = true;
+        return;
+      }
+      tickets.add(mapTicket(rs));
+      last[0] = new ReservationCursor(rs.getObject("startDate", LocalDateTime.class), rs.getLong("id"));
+    });
+
+    return Page
+        .<Ticket>builder()
+        .items(tickets)
+        .nextCursor(hasNext[0] ? last[0].toString() : null)
+        .build();
+  }
+
+  private static Ticket mapTicket(ResultSet rs) throws SQLException
+  {
+    return Ticket
         .builder()
         .id(rs.getLong("id"))
         .price(rs.getBigDecimal("price"))
@@ -157,19 +553,102 @@ public class TicketDao
         .distance(rs.getInt("distance"))
         .town1(rs.getString("town1"))
         .town2(rs.getString("town2"))
-        .build());
+        .build();
   }
 
-  public void payTicket(Long id)
+  /**
+   * RESERVED -> PAID
+   *
+   * @return {@code false} if the ticket doesn't exist or is not RESERVED
+   */
+  public boolean payTicket(Long id)
   {
     // update tickets is_pay -> Y
     String sql = "" +
-        " UPDATE ticket set is_pays = 'Y' WHERE id = :id";
+        " UPDATE ticket set is_pays = 'Y' WHERE id = :id AND is_pays = 'N'";
 
-    template.update(sql, new MapSqlParameterSource("id", id));
+    return 1 == template.update(sql, new MapSqlParameterSource("id", id));
   }
 
-  public void refactorReservation(Long idOfReservation, String day1, String month1, String day2, String month2)
+  /**
+   * @return the ids among {@code ticketIds} of tickets that belong to the user
+   */
+  public Set<Long> findTicketsOfUser(Long userId, Collection<Long> ticketIds)
+  {
+    String sql = "" +
+        " SELECT id                            " +
+        "   FROM ticket                        " +
+        " WHERE user_id = :userId              " +
+        "   AND id IN (:ticketIds)             ";
+
+    MapSqlParameterSource source = new MapSqlParameterSource()
+        .addValue("userId", userId)
+        .addValue("ticketIds", ticketIds);
+
+    Set<Long> found = new HashSet<>();
+    template.query(sql, source, (RowCallbackHandler) rs -> found.add(rs.getLong("id")));
+    return found;
+  }
+
+  /**
+   * Pays all unpaid tickets of the user among {@code ticketIds} with one UPDATE.
+   *
+   * @return the number of paid tickets
+   */
+  public int payTickets(Long userId, Collection<Long> ticketIds)
+  {
+    String sql = "" +
+        " UPDATE ticket SET is_pays = 'Y'      " +
+        " WHERE user_id = :userId              " +
+        "   AND id IN (:ticketIds)             " +
+        "   AND is_pays = 'N'                  ";
+
+    MapSqlParameterSource source = new MapSqlParameterSource()
+        .addValue("userId", userId)
+        .addValue("ticketIds", ticketIds);
+
+    return template.update(sql, source);
+  }
+
+  /**
+   * Moves the dates of a RESERVED ticket.
+   *
+   * @return {@code false} if the ticket doesn't exist or is already paid
+   */
+  /**
+   * Computes where {@link #refactorReservation} would move an unpaid ticket, with the same date arithmetic.
+   *
+   * @return {@code null} if there is no such unpaid ticket
+   */
+  public ReservationMove loadReservationMove(Long idOfReservation, String day1, String month1)
+  {
+    String sql = "" +
+        " SELECT train_id,                                                                  " +
+        "        startDate,                                                                 " +
+        "        date_add(date_add(startDate,Interval :month1 month),Interval :day1 day)    " +
+        "          AS newStartDate,                                                         " +
+        "        date_add(date_add(dateAfterSevenDays,Interval :month1 month),              " +
+        "                 Interval :day1 day) AS newDateAfterSevenDays                      " +
+        "   FROM ticket                                                                     " +
+        " WHERE id = :idOfReservation                                                       " +
+        "   AND is_pays = 'N'                                                               ";
+
+    MapSqlParameterSource source = new MapSqlParameterSource()
+        .addValue("idOfReservation", idOfReservation)
+        .addValue("day1", day1)
+        .addValue("month1", month1);
+
+    List<ReservationMove> moves = template.query(sql, source, (rs, rowNum) -> ReservationMove
+        .builder()
+        .trainId(rs.getObject("train_id", Long.class))
+        .startDate(rs.getObject("startDate", LocalDateTime.class))
+        .newStartDate(rs.getObject("newStartDate", LocalDateTime.class))
+        .newDateAfterSevenDays(rs.getObject("newDateAfterSevenDays", LocalDateTime.class))
+        .build());
+    return moves.isEmpty() ? null : moves.get(0);
+  }
+
+  public boolean refactorReservation(Long idOfReservation, String day1, String month1, String day2, String month2)
   {
     StringBuilder sql = new StringBuilder();
     sql.append(
@@ -185,7 +664,7 @@ public class TicketDao
     if (null != day2 && !"".equals(day2)) {
       sql.append("    ,endDate=date_add(endDate,Interval :day2 day) ");
     }
-    sql.append(" where id = :idOfReservation ");
+    sql.append(" where id = :idOfReservation AND is_pays = 'N' ");
 
     MapSqlParameterSource source = new MapSqlParameterSource()
         .addValue("idOfReservation", idOfReservation)
@@ -194,35 +673,65 @@ public class TicketDao
         .addValue("day2", day2)
         .addValue("month2", month2);
 
-    template.update(sql.toString(), source);
-
+    return 1 == template.update(sql.toString(), source);
   }
 
-  public List<Date> getStartDate(Long userId)
+  /**
+   * Deletes at most {@code batchSize} unpaid tickets whose time for payment ended before {@code now}.
+   *
+   * @return the number of deleted tickets
+   */
+  public int removeExpiredReservations(LocalDateTime now, int batchSize)
   {
     String sql = "" +
-        " SELECT id,                                           " +
-        "        startDate,                                    " +
-        "        dateAfterSevenDays                            " +
-        "   FROM ticket                                        " +
-        " WHERE is_pays = 'N'                                  " +
-        "   AND user_id = :userId                              ";
-
-    return template.query(sql, new MapSqlParameterSource("userId", userId), (rs, rowNum) -> Date
-        .builder()
-        .id(rs.getLong("id"))
-        .startDate(rs.getObject("startDate", LocalDate.class))
-        .dateAfterSevenDays(rs.getObject("dateAfterSevenDays", LocalDate.class))
-        .build());
+        " DELETE FROM ticket                   " +
+        " WHERE is_pays = 'N'                  " +
+        "   AND dateAfterSevenDays < :now      " +
+        " ORDER BY dateAfterSevenDays          " +
+        " LIMIT :batchSize                     ";
+
+    MapSqlParameterSource source = new MapSqlParameterSource()
+        .addValue("now", now)
+        .addValue("batchSize", batchSize);
+
+    return template.update(sql, source);
   }
 
-  public void removeOldTicket(Long id)
+  /**
+   * Deletes the given tickets if they are still unpaid and their time for payment ended by {@code now}.
+   *
+   * @return the number of deleted tickets
+   */
+  public int removeExpiredHolds(List<Long> ticketIds, LocalDateTime now)
   {
     String sql = "" +
-        " DELETE FROM ticket  " +
-        " WHERE id = :id      ";
+        " DELETE FROM ticket                   " +
+        " WHERE id IN (:ticketIds)             " +
+        "   AND is_pays = 'N'                  " +
+        "   AND dateAfterSevenDays <= :now     ";
+
+    MapSqlParameterSource source = new MapSqlParameterSource()
+        .addValue("ticketIds", ticketIds)
+        .addValue("now", now);
 
-    template.update(sql, new MapSqlParameterSource("id", id));
+    return template.update(sql, source);
+  }
+
+  /**
+   * Passes the id and the end of the payment time of every unpaid ticket to {@code holds}, row by row, streamed from
+   * the server.
+   */
+  public void loadUnpaidHolds(BiConsumer<Long, LocalDateTime> holds)
+  {
+    String sql = "" +
+        " SELECT id,                           " +
+        "        dateAfterSevenDays            " +
+        "   FROM ticket                        " +
+        " WHERE is_pays = 'N'                  ";
+
+    streamingTemplate.query(sql, new MapSqlParameterSource(), (RowCallbackHandler) rs -> holds.accept(
+        rs.getLong("id"),
+        rs.getTimestamp("dateAfterSevenDays").toLocalDateTime()));
   }
 
   public String getTypeOfPayReservation(Long idOfReservation)
@@ -239,14 +748,19 @@ public class TicketDao
     }
   }
 
-  public void removeTicketReservation(Long idOfReservation)
+  /**
+   * RESERVED -> CANCELLED
+   *
+   * @return {@code false} if the ticket doesn't exist or is already paid
+   */
+  public boolean removeTicketReservation(Long idOfReservation)
   {
     String sql = "" +
-        "DELETE FROM ticket WHERE id = :idOfReservation ";
+        "DELETE FROM ticket WHERE id = :idOfReservation AND is_pays = 'N' ";
 
     MapSqlParameterSource source = new MapSqlParameterSource("idOfReservation", idOfReservation);
 
-    template.update(sql, source);
+    return 1 == template.update(sql, source);
   }
 
   public List<UserInformation> loadUsers()
@@ -254,16 +768,99 @@ public class TicketDao
     String sql = "" +
         "SELECT id,firstName, lastName, email, role, username, typeOfCard FROM users";
 
-    return template.query(sql, new MapSqlParameterSource(), (rs, rowNum) -> UserInformation
+    return template.query(sql, new MapSqlParameterSource(), USER_INFORMATION);
+  }
+
+  /**
+   * Keyset page of the users ordered by id.
+   *
+   * @param afterId id of the last user of the previous page, 0 for the first page
+   */
+  public List<UserInformation> loadUsersPage(Long afterId, int limit)
+  {
+    String sql = "" +
+        " SELECT id,firstName, lastName, email, role, username, typeOfCard " +
+        "   FROM users                                                     " +
+        " WHERE id > :afterId                                              " +
+        " ORDER BY id                                                      " +
+        " LIMIT :limit                                                     ";
+
+    MapSqlParameterSource source = new MapSqlParameterSource()
+        .addValue("afterId", afterId)
+        .addValue("limit", limit);
+
+    return template.query(sql, source, USER_INFORMATION);
+  }
+
+  /**
+   * Passes all users to {@code users} row by row, streamed from the server so memory use doesn't depend on the
+   * number of users.
+   */
+  public void streamUsers(Consumer<UserInformation> users)
+  {
+    String sql = "" +
+        "SELECT id,firstName, lastName, email, role, username, typeOfCard FROM users ORDER BY id";
+
+    streamingTemplate.query(sql, new MapSqlParameterSource(),
+        (RowCallbackHandler) rs -> users.accept(USER_INFORMATION.mapRow(rs, 0)));
+  }
+
+  /**
+   * Passes every ticket joined with its train to {@code tickets} row by row, streamed from the server.
+   *
+   * @param from first start date, {@code null} for no lower bound
+   * @param to   last start date, {@code null} for no upper bound
+   * @param paid only paid or only unpaid tickets, {@code null} for both
+   */
+  public void exportTickets(LocalDate from, LocalDate to, Boolean paid, Consumer<TicketExport> tickets)
+  {
+    StringBuilder sql = new StringBuilder();
+    sql.append(
+        " SELECT tik.id AS id,                                  " +
+            "        tik.user_id AS userId,                         " +
+            "        tik.startDate AS startDate,                    " +
+            "        tik.endDate AS endDate,                        " +
+            "        tik.dateAfterSevenDays AS dateAfterSevenDays,  " +
+            "        tik.is_pays AS isPays,                         " +
+            "        tik.priceWithDiscount AS priceWithDiscount,    " +
+            "        t.id AS trainId,                               " +
+            "        t.town1 AS town1,                              " +
+            "        t.town2 AS town2,                              " +
+            "        t.distance AS distance,                        " +
+            "        t.initialPrice AS initialPrice                 " +
+            "   FROM ticket tik                                     " +
+            "   JOIN train t on tik.train_id = t.id                 " +
+            "  WHERE 1 = 1                                          ");
+    MapSqlParameterSource source = new MapSqlParameterSource();
+    if (null != from) {
+      sql.append(" AND tik.startDate >= :from ");
+      source.addValue("from", from.atStartOfDay());
+    }
+    if (null != to) {
+      sql.append(" AND tik.startDate < :to ");
+      source.addValue("to", to.plusDays(1).atStartOfDay());
+    }
+    if (null != paid) {
+      sql.append(" AND tik.is_pays = :isPays ");
+      source.addValue("isPays", paid ? "Y" : "N");
+    }
+    sql.append(" ORDER BY tik.id ");
+
+    streamingTemplate.query(sql.toString(), source, (RowCallbackHandler) rs -> tickets.accept(TicketExport
         .builder()
-        .userId(rs.getLong("id"))
-        .firstName(rs.getString("firstName"))
-        .lastName(rs.getString("lastName"))
-        .email(rs.getString("email"))
-        .role(rs.getString("role"))
-        .username(rs.getString("username"))
-        .typeOfCard(rs.getString("typeOfCard"))
-        .build());
+        .ticketId(rs.getLong("id"))
+        .userId(rs.getLong("userId"))
+        .startDate(rs.getObject("startDate", LocalDateTime.class))
+        .endDate(rs.getObject("endDate", LocalDateTime.class))
+        .dateAfterSevenDays(rs.getObject("dateAfterSevenDays", LocalDateTime.class))
+        .paid("Y".equals(rs.getString("isPays")))
+        .priceWithDiscount(rs.getBigDecimal("priceWithDiscount"))
+        .trainId(rs.getLong("trainId"))
+        .town1(rs.getString("town1"))
+        .town2(rs.getString("town2"))
+        .distance(rs.getInt("distance"))
+        .initialPrice(rs.getBigDecimal("initialPrice"))
+        .build()));
   }
 
   public String getUser(Long userId)
@@ -290,6 +887,20 @@ public class TicketDao
     template.update(sql, source);
   }
 
+  public void updatePassword(String username, String password)
+  {
+    String sql = "" +
+        " UPDATE users                      " +
+        "    SET password = :password       " +
+        "  WHERE username = :username       ";
+
+    MapSqlParameterSource source = new MapSqlParameterSource()
+        .addValue("username", username)
+        .addValue("password", password);
+
+    template.update(sql, source);
+  }
+
   public Optional<UserRegistrationDetail> findByUsername(String username)
   {
     String sql = "" +
@@ -326,22 +937,4 @@ public class TicketDao
       return Optional.empty();
     }
   }
-
-  public Boolean loadTowns(String town1, String town2)
-  {
-    String sql = "" +
-        " SELECT COUNT(1) FROM train WHERE town1 = :town1 " +
-        " AND town2 = :town2 ";
-
-    MapSqlParameterSource source = new MapSqlParameterSource()
-        .addValue("town1", town1)
-        .addValue("town2", town2);
-
-    try {
-      return template.queryForObject(sql, source, Boolean.class);
-    }
-    catch (EmptyResultDataAccessException e) {
-      return false;
-    }
-  }
 }
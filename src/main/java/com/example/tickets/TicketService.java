@@ -2,37 +2,197 @@ package com.example.tickets;
 
 import com.example.tickets.bean.*;
 import com.example.tickets.enums.CardType;
+import com.example.tickets.enums.DestinationFormat;
+import com.example.tickets.enums.PaymentStatus;
+import com.example.tickets.enums.RegistrationStatus;
 import com.example.tickets.enums.Role;
+import com.example.tickets.enums.RouteCriteria;
+import com.example.tickets.enums.TicketState;
+import com.example.tickets.jdbc.QueryMetrics;
+import com.example.tickets.jdbc.RoutingDataSource;
 import com.example.tickets.enums.Travel;
+import com.example.tickets.network.DestinationImporter;
+import com.example.tickets.network.FareMatrix;
+import com.example.tickets.network.RouteFinder;
+import com.example.tickets.network.TownIndex;
+import com.example.tickets.pricing.DiscountEngine;
+import com.example.tickets.pricing.QuoteCache;
+import com.example.tickets.reservation.ExpiredReservationSweeper;
+import com.example.tickets.reservation.ReservationHolds;
+import com.example.tickets.reservation.SeatCapacityTracker;
+import com.example.tickets.security.BulkPasswordEncoder;
+import com.example.tickets.security.CredentialCache;
+import com.example.tickets.security.PasswordHasher;
+import com.example.tickets.security.TicketUserDetails;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.BufferedReader;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @Transactional
 public class TicketService
 {
-  private       TicketDao             dao;
-  private final BCryptPasswordEncoder passwordEncoder;
+  static final int MAX_PAGE_SIZE          = 1000;
+  static final int MAX_TOWN_SUGGESTIONS   = 100;
+  static final int MAX_BULK_REGISTRATIONS = 50_000;
+
+  //columns of the users table
+  private static final int MAX_NAME_LENGTH  = 100;
+  private static final int MAX_EMAIL_LENGTH = 255;
+
+  private       TicketDao                 dao;
+  private final PasswordHasher            passwordEncoder;
+  private final FareMatrix                fareMatrix;
+  private final DiscountEngine            discountEngine;
+  private final QuoteCache                quoteCache;
+  private final RouteFinder               routeFinder;
+  private final CredentialCache           credentialCache;
+  private final SeatCapacityTracker       seatCapacityTracker;
+  private final ExpiredReservationSweeper sweeper;
+  private final ReservationHolds          reservationHolds;
+  private final TownIndex                 townIndex;
+  private final QueryMetrics              queryMetrics;
+  private final RoutingDataSource         routingDataSource;
+  private final DestinationImporter       destinationImporter;
+  private final BulkPasswordEncoder       bulkPasswordEncoder;
 
 
   @Autowired
-  public TicketService(TicketDao dao, BCryptPasswordEncoder passwordEncoder)
+  public TicketService(TicketDao dao, PasswordHasher passwordEncoder, FareMatrix fareMatrix,
+                       DiscountEngine discountEngine, QuoteCache quoteCache, RouteFinder routeFinder,
+                       CredentialCache credentialCache, SeatCapacityTracker seatCapacityTracker,
+                       ExpiredReservationSweeper sweeper, ReservationHolds reservationHolds,
+                       TownIndex townIndex, QueryMetrics queryMetrics, RoutingDataSource routingDataSource,
+                       DestinationImporter destinationImporter, BulkPasswordEncoder bulkPasswordEncoder)
   {
     this.dao = dao;
     this.passwordEncoder = passwordEncoder;
+    this.fareMatrix = fareMatrix;
+    this.discountEngine = discountEngine;
+    this.quoteCache = quoteCache;
+    this.routeFinder = routeFinder;
+    this.credentialCache = credentialCache;
+    this.seatCapacityTracker = seatCapacityTracker;
+    this.sweeper = sweeper;
+    this.reservationHolds = reservationHolds;
+    this.townIndex = townIndex;
+    this.queryMetrics = queryMetrics;
+    this.routingDataSource = routingDataSource;
+    this.destinationImporter = destinationImporter;
+    this.bulkPasswordEncoder = bulkPasswordEncoder;
   }
 
   public void registration(Registration information)
+  {
+    UserRegistrationDetail detail = toUserDetail(information);
+    detail.setPassword(passwordEncoder.encode(detail.getPassword()));
+
+    try {
+      dao.registration(detail);
+    }
+    catch (DuplicateKeyException e) {
+      throw new UsernameTakenException();
+    }
+  }
+
+  /**
+   * Registers every valid record of the batch. The passwords are hashed in parallel on all cores and the users are
+   * inserted in JDBC batches; a record that fails does not stop the others.
+   *
+   * @return one result per record, in the order of the request
+   */
+  //each batch insert commits on its own, no transaction stays open while the passwords are hashed
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public List<RegistrationResult> bulkRegistration(List<Registration> registrations)
+  {
+    if (registrations.size() > MAX_BULK_REGISTRATIONS) {
+      throw new IllegalArgumentException("At most " + MAX_BULK_REGISTRATIONS + " users can be registered at once!");
+    }
+
+    RegistrationResult[] results = new RegistrationResult[registrations.size()];
+    List<Integer> indexes = new ArrayList<>();
+    List<UserRegistrationDetail> details = new ArrayList<>();
+    Set<String> usernames = new HashSet<>();
+    for (int i = 0; i < registrations.size(); i++) {
+      Registration information = registrations.get(i);
+      try {
+        if (null == information) {
+          throw new IllegalArgumentException("The record is empty!");
+        }
+        UserRegistrationDetail detail = toUserDetail(information);
+        checkForBulkRegistration(detail);
+        //the usernames are compared like the database compares them, without the case
+        if (!usernames.add(detail.getUsername().toLowerCase(Locale.ROOT))) {
+          throw new IllegalArgumentException("The username is repeated in the request!");
+        }
+        indexes.add(i);
+        details.add(detail);
+      }
+      catch (IllegalArgumentException e) {
+        results[i] = registrationResult(i, null == information ? null : information.getUsername(),
+            RegistrationStatus.REJECTED, e.getMessage());
+      }
+    }
+
+    //a BCrypt hash costs far more than the lookup, taken usernames are rejected before hashing
+    Set<String> taken = new HashSet<>();
+    List<String> candidates = new ArrayList<>();
+    details.forEach(detail -> candidates.add(detail.getUsername()));
+    dao.findExistingUsernames(candidates).forEach(username -> taken.add(username.toLowerCase(Locale.ROOT)));
+
+    List<Integer> newIndexes = new ArrayList<>();
+    List<UserRegistrationDetail> newUsers = new ArrayList<>();
+    for (int i = 0; i < details.size(); i++) {
+      UserRegistrationDetail detail = details.get(i);
+      if (taken.contains(detail.getUsername().toLowerCase(Locale.ROOT))) {
+        results[indexes.get(i)] = registrationResult(indexes.get(i), detail.getUsername(),
+            RegistrationStatus.REJECTED, "The username is already taken!");
+      }
+      else {
+        newIndexes.add(indexes.get(i));
+        newUsers.add(detail);
+      }
+    }
+
+    List<String> passwords = new ArrayList<>();
+    newUsers.forEach(detail -> passwords.add(detail.getPassword()));
+    List<String> hashes = bulkPasswordEncoder.encodeAll(passwords);
+    for (int i = 0; i < newUsers.size(); i++) {
+      newUsers.get(i).setPassword(hashes.get(i));
+    }
+
+    //a username taken in the meantime is skipped by the insert
+    boolean[] inserted = dao.batchRegistration(newUsers);
+    for (int i = 0; i < newUsers.size(); i++) {
+      results[newIndexes.get(i)] = inserted[i]
+          ? registrationResult(newIndexes.get(i), newUsers.get(i).getUsername(), RegistrationStatus.REGISTERED, null)
+          : registrationResult(newIndexes.get(i), newUsers.get(i).getUsername(), RegistrationStatus.REJECTED,
+              "The username is already taken!");
+    }
+    return Arrays.asList(results);
+  }
+
+  private UserRegistrationDetail toUserDetail(Registration information)
   {
     UserRegistrationDetail detail = UserRegistrationDetail
         .builder()
@@ -43,57 +203,219 @@ public class TicketService
         .username(information.getUsername())
         .build();
 
+    if (null == information.getPassword()) {
+      throw new IllegalArgumentException("The password is required!");
+    }
     if (!information.getPassword().equalsIgnoreCase(information.getRepeatPassword())) {
       throw new IllegalArgumentException("The passwords doesn't match!");
     }
 
-    detail.setPassword(passwordEncoder.encode(detail.getPassword()));
-
     checkForValidTypeOfCard(information.getTypeOfCard());
     detail.setTypeOfCard(CardType.valueOf(information.getTypeOfCard()));
 
-    if (!(Role.ADMIN.toString().equals(information.getRole())
-        && !Role.USER.toString().equals(information.getRole()))) {
+    if (!Role.ADMIN.toString().equals(information.getRole()) && !Role.USER.toString().equals(information.getRole())) {
       throw new IllegalArgumentException("Invalid role!");
     }
 
     detail.setRole(Role.valueOf(information.getRole()));
+    return detail;
+  }
 
-    dao.registration(detail);
+  //the batch insert ignores the rows MySQL would reject, so everything it could reject is checked here
+  private static void checkForBulkRegistration(UserRegistrationDetail detail)
+  {
+    if (null == detail.getUsername() || detail.getUsername().isBlank()) {
+      throw new IllegalArgumentException("The username is required!");
+    }
+    if (detail.getUsername().length() > MAX_NAME_LENGTH ||
+        (null != detail.getFirstName() && detail.getFirstName().length() > MAX_NAME_LENGTH) ||
+        (null != detail.getLastName() && detail.getLastName().length() > MAX_NAME_LENGTH)) {
+      throw new IllegalArgumentException("The names can have at most " + MAX_NAME_LENGTH + " characters!");
+    }
+    if (null != detail.getEmail() && detail.getEmail().length() > MAX_EMAIL_LENGTH) {
+      throw new IllegalArgumentException("The email can have at most " + MAX_EMAIL_LENGTH + " characters!");
+    }
   }
 
+  private static RegistrationResult registrationResult(int index, String username, RegistrationStatus status,
+                                                       String message)
+  {
+    return RegistrationResult
+        .builder()
+        .index(index)
+        .username(username)
+        .status(status)
+        .message(message)
+        .build();
+  }
+
+  @Transactional(readOnly = true)
   public List<Town> loadAvailableDestinations()
   {
     return dao.loadAvailableDestinations(); //shte pokazvame samo vuzmojnite gradovete v koito vlaka shte putyva bez cenite im
   }
 
+  //served from memory, the index follows every refresh of the fares
+  public List<String> searchTowns(String prefix, int limit)
+  {
+    if (limit < 1 || limit > MAX_TOWN_SUGGESTIONS) {
+      throw new IllegalArgumentException("The limit must be between 1 and " + MAX_TOWN_SUGGESTIONS + "!");
+    }
+    return townIndex.search(prefix, limit);
+  }
+
   public void addAvailableDestination(DestinationInfo destinationInfo)
   {
 
     dao.addAvailableDestination(destinationInfo);
+    refreshFaresAfterCommit();
+  }
+
+  //one transaction for the whole timetable, the fares are refreshed once after the commit
+  public ImportResult importDestinations(BufferedReader body, DestinationFormat format)
+  {
+    ImportResult result = destinationImporter.importDestinations(body, format);
+    if (result.getInserted() + result.getUpdated() > 0) {
+      refreshFaresAfterCommit();
+    }
+    return result;
   }
 
 
+  @Transactional(readOnly = true)
   public BigDecimal getPriceOfTicket(LocalTime diapasonTime, String townFrom,
                                      String townTo, String wayOfTrip, boolean isThereChild)
   {
-    //check towns if exist in database
-    boolean isExist = dao.loadTowns(townFrom, townTo);
-    if (!isExist) {
+    CardType typeOfCard = getCurrentLoggedUser().getTypeOfCard();
+
+    long generation = quoteCache.getGeneration();
+    FareMatrix.Snapshot fares = fareMatrix.snapshot();
+
+    return quote(fares, generation, typeOfCard, diapasonTime, townFrom, townTo, wayOfTrip, isThereChild);
+  }
+
+  /**
+   * Prices every request against the same fare matrix snapshot and card type, so the user and the fares are read
+   * once per batch instead of once per request.
+   */
+  @Transactional(readOnly = true)
+  public List<BigDecimal> getPricesOfTickets(List<PriceRequest> requests)
+  {
+    CardType typeOfCard = getCurrentLoggedUser().getTypeOfCard();
+
+    long generation = quoteCache.getGeneration();
+    FareMatrix.Snapshot fares = fareMatrix.snapshot();
+
+    List<BigDecimal> prices = new ArrayList<>(requests.size());
+    for (PriceRequest request : requests) {
+      prices.add(quote(fares, generation, typeOfCard, request.getDiapasonTime(), request.getTownFrom(),
+          request.getTownTo(), request.getWayOfTrip(), Boolean.TRUE.equals(request.getIsThereChild())));
+    }
+    return prices;
+  }
+
+  @Transactional(readOnly = true)
+  public Route findRoute(String townFrom, String townTo, String criteria)
+  {
+    if (!RouteCriteria.CHEAPEST.toString().equals(criteria) && !RouteCriteria.SHORTEST.toString().equals(criteria)) {
+      throw new IllegalArgumentException("Invalid route criteria. You choose from CHEAPEST and SHORTEST!");
+    }
+
+    Route route = routeFinder.find(townFrom, townTo, RouteCriteria.valueOf(criteria));
+    if (null == route) {
       throw new IllegalArgumentException("There is no train for your trip to this town!");
     }
+    return route;
+  }
 
-    if (!Travel.ONE_WAY_TRIP.toString().equals(wayOfTrip) && !Travel.ROUND_TRIP.toString().equals(wayOfTrip)) {
-      throw new IllegalArgumentException("Invalid way of trip!");
+  public CacheStatistics getQuoteCacheStatistics()
+  {
+    return quoteCache.getStatistics();
+  }
+
+  public CacheStatistics getAuthCacheStatistics()
+  {
+    return credentialCache.getStatistics();
+  }
+
+  public SweepStatistics getSweeperStatistics()
+  {
+    return sweeper.getStatistics();
+  }
+
+  public List<QueryStatistics> getQueryStatistics()
+  {
+    return queryMetrics.getStatistics();
+  }
+
+  public List<DataSourceStatistics> getDataSourceStatistics()
+  {
+    return routingDataSource.getStatistics();
+  }
+
+  private BigDecimal quote(FareMatrix.Snapshot fares, long generation, CardType typeOfCard, LocalTime diapasonTime,
+                           String townFrom, String townTo, String wayOfTrip, boolean isThereChild)
+  {
+    QuoteCache.Key key = new QuoteCache.Key(townFrom, townTo, wayOfTrip, typeOfCard, isThereChild,
+        discountEngine.getTimeBand(diapasonTime));
+
+    BigDecimal price = quoteCache.get(key);
+    if (null == price) {
+      Train train = findTrain(fares, townFrom, townTo);
+      checkForValidWayOfTrip(wayOfTrip);
+
+      price = calculatePrice(train, typeOfCard, diapasonTime, wayOfTrip, isThereChild);
+      quoteCache.put(key, price, generation);
+    }
+    return price;
+  }
+
+  //a refresh before the commit could serve the fares of rows that are rolled back later
+  private void refreshFaresAfterCommit()
+  {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      refreshFares();
+      return;
     }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+    {
+      @Override
+      public void afterCommit()
+      {
+        refreshFares();
+      }
+    });
+  }
 
+  private void refreshFares()
+  {
+    fareMatrix.refresh();
+    quoteCache.invalidate();
+  }
 
-    String typeOfCard = getCurrentLoggedUser().getTypeOfCard().toString();
+  private Train findTrain(FareMatrix.Snapshot fares, String townFrom, String townTo)
+  {
+    //check towns if exist in the fare matrix (in-memory copy of the train table)
+    Train train = fares.find(townFrom, townTo);
+    if (null == train) {
+      throw new IllegalArgumentException("There is no train for your trip to this town!");
+    }
+    return train;
+  }
+
+  private void checkForValidWayOfTrip(String wayOfTrip)
+  {
+    if (!Travel.ONE_WAY_TRIP.toString().equals(wayOfTrip) && !Travel.ROUND_TRIP.toString().equals(wayOfTrip)) {
+      throw new IllegalArgumentException("Invalid way of trip!");
+    }
+  }
 
-    BigDecimal priceOfTicket = dao.getPriceOfTicket(townFrom, townTo);
-    priceOfTicket = calculationWayTrip(wayOfTrip, priceOfTicket);
+  private BigDecimal calculatePrice(Train train, CardType typeOfCard, LocalTime diapasonTime, String wayOfTrip,
+                                    boolean isThereChild)
+  {
+    BigDecimal priceOfTicket = calculationWayTrip(wayOfTrip, train.getInitialPrice());
 
-    return getDiscountForTickets(priceOfTicket, diapasonTime, isThereChild, typeOfCard);
+    return discountEngine.applyDiscount(priceOfTicket, diapasonTime, isThereChild, typeOfCard);
   }
 
   private BigDecimal calculationWayTrip(String wayOfTrip, BigDecimal priceOfTicket)
@@ -106,56 +428,167 @@ public class TicketService
 
   public void payTicket(Long ticketId)
   {
-    dao.payTicket(ticketId);
+    if (!dao.payTicket(ticketId)) {
+      rejectTransition(ticketId, TicketState.PAID, "This ticket is already payed!");
+    }
+    reservationHolds.release(ticketId);
   }
 
-  public void reservation(LocalDateTime startDate, LocalDateTime endDate,
-                          BigDecimal priceWithDiscount, Long trainId, int numberOfTickets)
+  /**
+   * Pays several tickets of the logged user at once with one UPDATE. Paying is idempotent, a ticket that was already
+   * paid is reported as paid too. Ids of other users' tickets are reported as not found.
+   */
+  public List<PaymentResult> payTickets(List<Long> ticketIds)
   {
+    List<PaymentResult> results = new ArrayList<>();
+    if (null == ticketIds || ticketIds.isEmpty()) {
+      return results;
+    }
     Long userId = getCurrentLoggedUser().getId();
-    for (int i = 0; i < numberOfTickets; i++) {
-      dao.reservation(userId, startDate, endDate, priceWithDiscount, trainId);
+    List<Long> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ticketIds));
+
+    //the conditional update locks only the rows it pays, the ids are read back only if some of them were not paid now
+    int paid = dao.payTickets(userId, uniqueIds);
+    Set<Long> found = paid == uniqueIds.size() ? new HashSet<>(uniqueIds) : dao.findTicketsOfUser(userId, uniqueIds);
+    for (Long ticketId : uniqueIds) {
+      PaymentStatus status = found.contains(ticketId) ? PaymentStatus.PAID : PaymentStatus.NOT_FOUND;
+      if (PaymentStatus.PAID == status) {
+        reservationHolds.release(ticketId);
+      }
+      results.add(PaymentResult
+          .builder()
+          .ticketId(ticketId)
+          .status(status)
+          .build());
     }
+    return results;
+  }
+
+  public List<Long> reservation(LocalDateTime startDate, LocalDateTime endDate,
+                                BigDecimal priceWithDiscount, Long trainId, int numberOfTickets)
+  {
+    if (numberOfTickets <= 0) {
+      return new ArrayList<>();
+    }
+    Long userId = getCurrentLoggedUser().getId();
+    //a full train is rejected here, without writing anything
+    seatCapacityTracker.reserve(trainId, startDate.toLocalDate(), numberOfTickets);
+    //all tickets of a group booking go to the database with one INSERT
+    List<Long> ticketIds = dao.batchReservation(userId, startDate, endDate, priceWithDiscount, trainId,
+        numberOfTickets);
+    //same as dateAfterSevenDays of the inserted tickets
+    reservationHolds.hold(ticketIds, startDate.plusDays(7));
+    return ticketIds;
   }
 
+  //expired reservations are removed by ExpiredReservationSweeper, listing only reads and skips them
+  @Transactional(readOnly = true)
   public List<Ticket> loadAllReservationsOfUser()
   {
-    UserRegistrationDetail user = getCurrentLoggedUser();
-    List<Date> dates = dao.getStartDate(user.getId());
-    int compareValue;
-    for (Date d : dates) {
-      compareValue = d.getDateAfterSevenDays().compareTo(d.getStartDate());
-      if (compareValue < 0) {
-        dao.removeOldTicket(d.getId());
-      }
+    return dao.loadAllReservationsOfUser(getCurrentLoggedUser().getId(), LocalDateTime.now());
+  }
+
+  @Transactional(readOnly = true)
+  public Page<Ticket> loadReservationsPage(String cursor, int limit)
+  {
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("The page size must be between 1 and " + MAX_PAGE_SIZE + "!");
     }
-    return dao.loadAllReservationsOfUser(user.getId());
+    ReservationCursor after = null == cursor || cursor.isEmpty() ? null : ReservationCursor.parse(cursor);
+    return dao.loadReservationsPage(getCurrentLoggedUser().getId(), LocalDateTime.now(), after, limit);
   }
 
   public void refactorReservation(Long idOfReservation, String day1, String month1, String day2, String month2)
   {
-    dao.refactorReservation(idOfReservation, day1, month1, day2, month2);
+    //the seat on the new day is taken before the ticket moves there, the seat count of that day doesn't include it yet
+    ReservationMove move = dao.loadReservationMove(idOfReservation, day1, month1);
+    boolean changesDay = null != move
+        && !move.getStartDate().toLocalDate().equals(move.getNewStartDate().toLocalDate());
+    if (changesDay) {
+      seatCapacityTracker.reserve(move.getTrainId(), move.getNewStartDate().toLocalDate(), 1);
+    }
+
+    if (!dao.refactorReservation(idOfReservation, day1, month1, day2, month2)) {
+      rejectTransition(idOfReservation, TicketState.RESERVED,
+          "Sorry you can't change the reservation, the ticket is already payed!");
+    }
+
+    if (changesDay) {
+      seatCapacityTracker.release(move.getTrainId(), move.getStartDate().toLocalDate(), 1);
+    }
+    if (null != move) {
+      //the payment time moved together with the start date
+      reservationHolds.hold(List.of(idOfReservation), move.getNewDateAfterSevenDays());
+    }
   }
 
   public void removeTicketReservation(Long idOfReservation)
   {
-    //check if the reservation if pay throw exception that can't remove the reservation
-    String isReservationPay = dao.getTypeOfPayReservation(idOfReservation);
-    if (null == isReservationPay) {
-      throw new IllegalArgumentException("This reservation doesn't exist!");
+    //the delete removes only unpaid tickets, a paid one is left as it is
+    if (!dao.removeTicketReservation(idOfReservation)) { //da premahnem i ot join table
+      rejectTransition(idOfReservation, TicketState.CANCELLED,
+          "Sorry you can't remove the reservation, the ticket is already payed!");
     }
+    reservationHolds.release(idOfReservation);
+  }
 
-    if ("Y".equals(isReservationPay)) {
-      throw new IllegalArgumentException("Sorry you can't remove the reservation, the ticket is already payed!");
+  /**
+   * Explains why the conditional update of a ticket to {@code target} changed no row. Reads the ticket only on this
+   * failure path.
+   */
+  private void rejectTransition(Long ticketId, TicketState target, String messageIfPaid)
+  {
+    TicketState current = TicketState.ofTypeOfPay(dao.getTypeOfPayReservation(ticketId));
+    if (null == current) {
+      throw new IllegalArgumentException("This reservation doesn't exist!");
     }
-    dao.removeTicketReservation(idOfReservation); //da premahnem i ot join table
+    if (!current.canBecome(target)) {
+      throw new IllegalArgumentException(messageIfPaid);
+    }
+    //the ticket changed between the two statements
+    throw new IllegalArgumentException("The reservation was changed in the meantime, please try again!");
   }
 
+  @Transactional(readOnly = true)
   public List<UserInformation> loadUsers()
   {
     return dao.loadUsers();
   }
 
+  @Transactional(readOnly = true)
+  public Page<UserInformation> loadUsersPage(Long cursor, int size)
+  {
+    if (size < 1 || size > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("The page size must be between 1 and " + MAX_PAGE_SIZE + "!");
+    }
+    //one row more than asked tells if there is a next page
+    List<UserInformation> users = dao.loadUsersPage(null == cursor ? 0L : cursor, size + 1);
+    String nextCursor = null;
+    if (users.size() > size) {
+      users = new ArrayList<>(users.subList(0, size));
+      nextCursor = String.valueOf(users.get(size - 1).getUserId());
+    }
+    return Page
+        .<UserInformation>builder()
+        .items(users)
+        .nextCursor(nextCursor)
+        .build();
+  }
+
+  //runs while the response is written, the streaming query must not hold a transaction open for that long
+  @Transactional(propagation = Propagation.NOT_SUPPORTED, readOnly = true)
+  public void streamUsers(Consumer<UserInformation> users)
+  {
+    dao.streamUsers(users);
+  }
+
+  //same as streamUsers, an export can take minutes and must not keep a transaction open
+  @Transactional(propagation = Propagation.NOT_SUPPORTED, readOnly = true)
+  public void exportTickets(LocalDate from, LocalDate to, Boolean paid, Consumer<TicketExport> tickets)
+  {
+    dao.exportTickets(from, to, paid, tickets);
+  }
+
   public void refactorUserProfile(Long userId, String email)
   {
     //Ako potrebitelq e ADMIN ne moje da bude refactoriran
@@ -167,61 +600,9 @@ public class TicketService
       throw new IllegalArgumentException("Can not refactor ADMIN profile!");
     }
     dao.refactorUserProfile(userId, email);
+    credentialCache.evictUser(userId);
   }
 
-  private BigDecimal getDiscountForTickets(BigDecimal priceOfTicket, LocalTime diapasonTime, boolean isThereChild,
-                                           String typeOfCard)
-  {
-    BigDecimal discount1 = BigDecimal.ZERO;
-    //1 DISCOUNT
-    //between 7:30 and 9:30 sutrin i 16:00 do 19:30 sledobed cenata ostava sushtata
-    //mejdu 9 i 30 i 16:00 i sled 19:30 poluchavame 5% otstupka
-    if (diapasonTime.isAfter(LocalTime.parse("09:35:00"))
-        && diapasonTime.isBefore(LocalTime.parse("16:00:00"))
-        || diapasonTime.isAfter(LocalTime.parse("19:30:00"))
-    ) {
-
-      discount1 = priceOfTicket.multiply(BigDecimal.valueOf(5)).divide(BigDecimal.valueOf(100), RoundingMode.CEILING);
-    }
-
-
-    //ako ima dete{
-    //2 DISCOUNT
-    //zavisimost ot vida karta poluchavame otstupka vinagi
-    //proverka s enuma
-    //ako imame semeina jelezoputna karta poluchavame na vseki bilet 50%
-    // ako nqmame nikakva  poluchavame 10%
-    // ako pritejavame karta za hora nad 60 godini poluchavame 34% otstupka
-    // (tuk imame dete s nas) vuv vsichki sluchai
-    BigDecimal discount2 = BigDecimal.ZERO;
-    if (isThereChild) {
-      if (CardType.FAMILY.toString().equals(typeOfCard)) {
-        discount2 = priceOfTicket.multiply(BigDecimal.valueOf(50)).divide(BigDecimal.valueOf(100), RoundingMode.CEILING);
-      }
-      else if (CardType.ELDERLY.toString().equals(typeOfCard)) {
-        discount2 = priceOfTicket.multiply(BigDecimal.valueOf(34)).divide(BigDecimal.valueOf(100), RoundingMode.CEILING);
-      }
-      else if (CardType.NONE.toString().equals(typeOfCard)) {
-        discount2 = priceOfTicket.multiply(BigDecimal.valueOf(10)).divide(BigDecimal.valueOf(100), RoundingMode.CEILING);
-      }
-    } // + tazi za vuzrastniq chovek nad 60 karta dori da nqma dete s nas po uslovie s deteto e sled tova napisano
-    else {
-      if (CardType.ELDERLY.toString().equals(typeOfCard)) {
-        discount2 = priceOfTicket.multiply(BigDecimal.valueOf(34)).divide(BigDecimal.valueOf(100), RoundingMode.CEILING);
-      }
-    }
-
-    //ako nqma dete s nas ostava vuzmojnostta za discount samo ot hour diapazone ili tazi za vuzrastniq chovek nad 60 karta
-
-
-    //sravnqvame discount ot  2te vuzmojni otstupki kato vzimame nai golqmata
-    if (discount2.compareTo(discount1) >= 0) {
-      return priceOfTicket.subtract(discount2);
-    }
-    return priceOfTicket.subtract(discount1);
-  }
-
-
   private void checkForValidTypeOfCard(String typeOfCard)
   {
     if (!CardType.ELDERLY.toString().equalsIgnoreCase(typeOfCard) &&
@@ -235,6 +616,11 @@ public class TicketService
   public UserRegistrationDetail getCurrentLoggedUser()
   {
     Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    //the principal from UserDetailsServiceImpl already has everything we need, no need to load the user again
+    if (principal instanceof TicketUserDetails) {
+      return ((TicketUserDetails) principal).toUserRegistrationDetail();
+    }
+
     String principalUsername = "";
     if (principal instanceof UserDetails) {
       principalUsername = ((UserDetails) principal).getUsername();
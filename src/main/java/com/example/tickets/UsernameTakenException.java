@@ -0,0 +1,16 @@
+package com.example.tickets;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Another user already has the username, enforced by the unique index on {@code users(username)}. Answered with 409.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class UsernameTakenException extends IllegalArgumentException
+{
+  public UsernameTakenException()
+  {
+    super("The username is already taken!");
+  }
+}
@@ -0,0 +1,73 @@
+package com.example.tickets;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * With {@code tickets.virtual-threads.enabled} every request, and with it every {@link TicketDao} call, runs on its
+ * own virtual thread instead of a Tomcat pool thread. The streamed responses of the export and the user listing run
+ * on virtual threads too.
+ * <p>
+ * Tomcat's thread limit doesn't apply then. The connection pool is what limits the concurrent database work: a request
+ * waits for one of the {@code spring.datasource.hikari.maximum-pool-size} connections for at most
+ * {@code spring.datasource.hikari.connection-timeout}. Virtual threads need Java 21 at runtime; the code is built for
+ * Java 11, so the executor is created by reflection.
+ */
+@Log4j2
+@Configuration
+@ConditionalOnProperty(name = "tickets.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig
+{
+  private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+
+  @Bean
+  public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadRequests()
+  {
+    log.info("Requests run on virtual threads");
+    return factory -> factory.addProtocolHandlerCustomizers(protocolHandler -> protocolHandler.setExecutor(executor));
+  }
+
+  @Bean
+  public WebMvcConfigurer virtualThreadStreaming()
+  {
+    return new WebMvcConfigurer()
+    {
+      @Override
+      public void configureAsyncSupport(AsyncSupportConfigurer configurer)
+      {
+        configurer.setTaskExecutor(new ConcurrentTaskExecutor(executor));
+      }
+    };
+  }
+
+  @PreDestroy
+  public void shutdown()
+  {
+    executor.shutdown();
+  }
+
+  static ExecutorService newVirtualThreadPerTaskExecutor()
+  {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    }
+    catch (NoSuchMethodException e) {
+      throw new IllegalStateException("tickets.virtual-threads.enabled needs Java 21 or newer, this is Java " +
+          Runtime.version().feature() + "!");
+    }
+    catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Can't create the virtual thread executor!", e);
+    }
+  }
+}
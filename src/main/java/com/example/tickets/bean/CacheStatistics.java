@@ -0,0 +1,25 @@
+package com.example.tickets.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Setter
+@Getter
+@Builder
+public class CacheStatistics implements Serializable
+{
+  private long hits;
+  private long misses;
+  private long evictions;
+  private int  size;
+  private int  maxSize;
+
+  public double getHitRate()
+  {
+    long requests = hits + misses;
+    return 0 == requests ? 0 : (double) hits / requests;
+  }
+}
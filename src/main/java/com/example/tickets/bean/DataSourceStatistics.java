@@ -0,0 +1,20 @@
+package com.example.tickets.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Setter
+@Getter
+@Builder
+public class DataSourceStatistics implements Serializable
+{
+  private String  name;
+  //connections taken from the pool, one per transaction or statement outside of a transaction, not per statement
+  private long    connections;
+  private boolean healthy;
+  //null for the primary and for a replica whose lag is unknown
+  private Long    lagSeconds;
+}
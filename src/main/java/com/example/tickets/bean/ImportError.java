@@ -5,14 +5,12 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.io.Serializable;
-import java.time.LocalDate;
 
 @Setter
 @Getter
 @Builder
-public class Date implements Serializable
+public class ImportError implements Serializable
 {
-  Long id;
-  private LocalDate startDate;
-  private LocalDate dateAfterSevenDays;
+  private int    line;
+  private String message;
 }
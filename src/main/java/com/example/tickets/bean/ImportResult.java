@@ -0,0 +1,20 @@
+package com.example.tickets.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Setter
+@Getter
+@Builder
+public class ImportResult implements Serializable
+{
+  private int               inserted;
+  private int               updated;
+  private int               rejected;
+  //the first rejected rows only, rejected has the full count
+  private List<ImportError> errors;
+}
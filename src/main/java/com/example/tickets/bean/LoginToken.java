@@ -0,0 +1,18 @@
+package com.example.tickets.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+@Setter
+@Getter
+@Builder
+public class LoginToken implements Serializable
+{
+  private String  token;
+  private String  tokenType;
+  private Instant expiresAt;
+}
@@ -0,0 +1,18 @@
+package com.example.tickets.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Setter
+@Getter
+@Builder
+public class Page<T> implements Serializable
+{
+  private List<T> items;
+  //pass as cursor to get the next page, null on the last page
+  private String  nextCursor;
+}
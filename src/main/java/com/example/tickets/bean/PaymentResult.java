@@ -0,0 +1,17 @@
+package com.example.tickets.bean;
+
+import com.example.tickets.enums.PaymentStatus;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Setter
+@Getter
+@Builder
+public class PaymentResult implements Serializable
+{
+  private Long          ticketId;
+  private PaymentStatus status;
+}
@@ -0,0 +1,26 @@
+package com.example.tickets.bean;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalTime;
+
+@Setter
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceRequest implements Serializable
+{
+  @JsonFormat(pattern = "HH:mm:ss")
+  private LocalTime diapasonTime;
+  private String    townFrom;
+  private String    townTo;
+  private String    wayOfTrip;
+  private Boolean   isThereChild;
+}
@@ -0,0 +1,28 @@
+package com.example.tickets.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.Map;
+
+@Setter
+@Getter
+@Builder
+public class QueryStatistics implements Serializable
+{
+  private String            name;
+  private long              count;
+  private long              errors;
+  private long              rows;
+  private double            totalMillis;
+  private double            meanMillis;
+  private double            maxMillis;
+  //upper bounds of the histogram buckets that hold the percentile
+  private double            p50Millis;
+  private double            p95Millis;
+  private double            p99Millis;
+  //executions per bucket, keyed by the upper bound of the bucket
+  private Map<String, Long> histogram;
+}
@@ -0,0 +1,21 @@
+package com.example.tickets.bean;
+
+import com.example.tickets.enums.RegistrationStatus;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Setter
+@Getter
+@Builder
+public class RegistrationResult implements Serializable
+{
+  //position of the record in the request
+  private int                index;
+  private String             username;
+  private RegistrationStatus status;
+  //why the record was rejected
+  private String             message;
+}
@@ -0,0 +1,40 @@
+package com.example.tickets.bean;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Position after the last reservation of a page, reservations are ordered by (startDate, id).
+ */
+@Getter
+@AllArgsConstructor
+public class ReservationCursor implements Serializable
+{
+  private final LocalDateTime startDate;
+  private final Long          id;
+
+  public static ReservationCursor parse(String cursor)
+  {
+    int separator = null == cursor ? -1 : cursor.lastIndexOf('_');
+    if (separator < 0) {
+      throw new IllegalArgumentException("Invalid cursor!");
+    }
+    try {
+      return new ReservationCursor(LocalDateTime.parse(cursor.substring(0, separator)),
+          Long.valueOf(cursor.substring(separator + 1)));
+    }
+    catch (DateTimeParseException | NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid cursor!");
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return startDate + "_" + id;
+  }
+}
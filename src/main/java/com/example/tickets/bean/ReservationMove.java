@@ -0,0 +1,18 @@
+package com.example.tickets.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Setter
+@Getter
+@Builder
+public class ReservationMove
+{
+  private Long          trainId;
+  private LocalDateTime startDate;
+  private LocalDateTime newStartDate;
+  private LocalDateTime newDateAfterSevenDays;
+}
@@ -0,0 +1,19 @@
+package com.example.tickets.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.List;
+
+@Setter
+@Getter
+@Builder
+public class Route implements Serializable
+{
+  private List<Train> legs;
+  private Integer     totalDistance;
+  private BigDecimal  totalPrice;
+}
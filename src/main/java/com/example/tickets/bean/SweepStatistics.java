@@ -0,0 +1,20 @@
+package com.example.tickets.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Setter
+@Getter
+@Builder
+public class SweepStatistics implements Serializable
+{
+  private long          runs;
+  private long          totalRowsSwept;
+  private int           lastRunRowsSwept;
+  private long          lastRunMillis;
+  private LocalDateTime lastRunAt;
+}
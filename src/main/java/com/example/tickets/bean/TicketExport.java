@@ -0,0 +1,28 @@
+package com.example.tickets.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Setter
+@Getter
+@Builder
+public class TicketExport implements Serializable
+{
+  private Long          ticketId;
+  private Long          userId;
+  private LocalDateTime startDate;
+  private LocalDateTime endDate;
+  private LocalDateTime dateAfterSevenDays;
+  private Boolean       paid;
+  private BigDecimal    priceWithDiscount;
+  private Long          trainId;
+  private String        town1;
+  private String        town2;
+  private Integer       distance;
+  private BigDecimal    initialPrice;
+}
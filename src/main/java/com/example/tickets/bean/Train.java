@@ -0,0 +1,20 @@
+package com.example.tickets.bean;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+@Setter
+@Getter
+@Builder
+public class Train implements Serializable
+{
+  private Long       id;
+  private String     town1;
+  private String     town2;
+  private Integer    distance;
+  private BigDecimal initialPrice;
+}
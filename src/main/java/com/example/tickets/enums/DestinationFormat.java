@@ -0,0 +1,9 @@
+package com.example.tickets.enums;
+
+public enum DestinationFormat
+{
+  //town1,town2,distance,initialPrice with an optional header line
+  CSV,
+  //one {"town1": .., "town2": .., "distance": .., "initialPrice": ..} object per line
+  JSON_LINES
+}
@@ -0,0 +1,7 @@
+package com.example.tickets.enums;
+
+public enum PaymentStatus
+{
+  PAID,
+  NOT_FOUND
+}
@@ -0,0 +1,7 @@
+package com.example.tickets.enums;
+
+public enum RouteCriteria
+{
+  CHEAPEST,
+  SHORTEST
+}
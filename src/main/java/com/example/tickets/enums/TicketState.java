@@ -0,0 +1,32 @@
+package com.example.tickets.enums;
+
+/**
+ * Lifecycle of a ticket: RESERVED -> PAID, RESERVED -> CANCELLED, RESERVED -> EXPIRED. Moving the dates of a
+ * reservation is the RESERVED -> RESERVED transition.
+ * <p>
+ * Only RESERVED and PAID are stored, in the is_pays column. Cancelled and expired tickets are deleted, so every
+ * transition is one UPDATE or DELETE guarded by {@code is_pays = 'N'}.
+ */
+public enum TicketState
+{
+  RESERVED,
+  PAID,
+  CANCELLED,
+  EXPIRED;
+
+  public boolean canBecome(TicketState next)
+  {
+    return RESERVED == this && null != next;
+  }
+
+  /**
+   * @return the state stored as is_pays or {@code null} if the ticket doesn't exist (anymore)
+   */
+  public static TicketState ofTypeOfPay(String isPays)
+  {
+    if (null == isPays) {
+      return null;
+    }
+    return "Y".equals(isPays) ? PAID : RESERVED;
+  }
+}
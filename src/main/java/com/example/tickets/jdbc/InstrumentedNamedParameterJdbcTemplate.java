@@ -0,0 +1,143 @@
+package com.example.tickets.jdbc;
+
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * {@link NamedParameterJdbcTemplate} that records the time, the rows and the failures of every statement in
+ * {@link QueryMetrics}.
+ * <p>
+ * Only the outermost call is recorded when the template calls itself, e.g. {@code queryForObject} with a class
+ * delegates to {@code queryForObject} with a row mapper.
+ */
+public class InstrumentedNamedParameterJdbcTemplate extends NamedParameterJdbcTemplate
+{
+  private static final ThreadLocal<boolean[]> RECORDING = ThreadLocal.withInitial(() -> new boolean[1]);
+
+  private final QueryMetrics metrics;
+
+  public InstrumentedNamedParameterJdbcTemplate(JdbcOperations jdbcOperations, QueryMetrics metrics)
+  {
+    super(jdbcOperations);
+    this.metrics = metrics;
+  }
+
+  @Override
+  public <T> T query(String sql, SqlParameterSource paramSource, ResultSetExtractor<T> rse)
+  {
+    long[] rows = {0};
+    ResultSetExtractor<T> counted = rs -> rse.extractData(counting(rs, rows));
+    return timed(sql, () -> super.query(sql, paramSource, counted), result -> rows[0]);
+  }
+
+  @Override
+  public void query(String sql, SqlParameterSource paramSource, RowCallbackHandler rch)
+  {
+    long[] rows = {0};
+    timed(sql, () -> {
+      super.query(sql, paramSource, (RowCallbackHandler) rs -> {
+        rows[0]++;
+        rch.processRow(rs);
+      });
+      return null;
+    }, result -> rows[0]);
+  }
+
+  @Override
+  public <T> List<T> query(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper)
+  {
+    return timed(sql, () -> super.query(sql, paramSource, rowMapper), Collection::size);
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper)
+  {
+    return timed(sql, () -> super.queryForObject(sql, paramSource, rowMapper), result -> 1);
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, SqlParameterSource paramSource, Class<T> requiredType)
+  {
+    return timed(sql, () -> super.queryForObject(sql, paramSource, requiredType), result -> 1);
+  }
+
+  @Override
+  public int update(String sql, SqlParameterSource paramSource)
+  {
+    return timed(sql, () -> super.update(sql, paramSource), Integer::longValue);
+  }
+
+  @Override
+  public int update(String sql, SqlParameterSource paramSource, KeyHolder generatedKeyHolder, String[] keyColumnNames)
+  {
+    return timed(sql, () -> super.update(sql, paramSource, generatedKeyHolder, keyColumnNames), Integer::longValue);
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, SqlParameterSource[] batchArgs)
+  {
+    //drivers may answer SUCCESS_NO_INFO (-2) for a statement of the batch
+    return timed(sql, () -> super.batchUpdate(sql, batchArgs), counts -> Arrays.stream(counts).filter(c -> c > 0).sum());
+  }
+
+  //counts the rows the extractor moves to, the rows it doesn't read are not counted
+  private static ResultSet counting(ResultSet rs, long[] rows)
+  {
+    return (ResultSet) Proxy.newProxyInstance(InstrumentedNamedParameterJdbcTemplate.class.getClassLoader(),
+        new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+          try {
+            Object result = method.invoke(rs, args);
+            if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+              rows[0]++;
+            }
+            return result;
+          }
+          catch (InvocationTargetException e) {
+            throw e.getTargetException();
+          }
+        });
+  }
+
+  private <T> T timed(String sql, Supplier<T> statement, ToLongFunction<T> rowCount)
+  {
+    boolean[] recording = RECORDING.get();
+    if (recording[0]) {
+      return statement.get();
+    }
+
+    recording[0] = true;
+    long started = System.nanoTime();
+    try {
+      T result = statement.get();
+      metrics.record(metrics.nameOf(sql), System.nanoTime() - started, rowCount.applyAsLong(result), false);
+      return result;
+    }
+    catch (EmptyResultDataAccessException e) {
+      //no row is an answer, not a failure
+      metrics.record(metrics.nameOf(sql), System.nanoTime() - started, 0, false);
+      throw e;
+    }
+    catch (RuntimeException e) {
+      metrics.record(metrics.nameOf(sql), System.nanoTime() - started, 0, true);
+      throw e;
+    }
+    finally {
+      recording[0] = false;
+    }
+  }
+}
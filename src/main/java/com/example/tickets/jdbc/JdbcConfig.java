@@ -0,0 +1,72 @@
+package com.example.tickets.jdbc;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+public class JdbcConfig
+{
+  //replaces the template of the Spring Boot auto configuration
+  @Bean
+  public NamedParameterJdbcTemplate namedParameterJdbcTemplate(JdbcTemplate jdbcTemplate, QueryMetrics metrics)
+  {
+    return new InstrumentedNamedParameterJdbcTemplate(jdbcTemplate, metrics);
+  }
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties)
+  {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  //the replicas share the driver and the credentials of the primary, their pools are closed by RoutingDataSource
+  @Bean
+  public RoutingDataSource routingDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                             @Value("${tickets.datasource.replica-urls:}") List<String> replicaUrls,
+                                             @Value("${tickets.datasource.max-replica-lag:PT5S}") Duration maxLag)
+  {
+    Map<String, DataSource> replicas = new LinkedHashMap<>();
+    for (String url : replicaUrls) {
+      if (url.isBlank()) {
+        continue;
+      }
+      String name = "replica-" + (replicas.size() + 1);
+      HikariDataSource replica = DataSourceBuilder
+          .create()
+          .type(HikariDataSource.class)
+          .driverClassName(properties.determineDriverClassName())
+          .url(url.trim())
+          .username(properties.determineUsername())
+          .password(properties.determinePassword())
+          .build();
+      replica.setPoolName(name);
+      replica.setReadOnly(true);
+      replicas.put(name, replica);
+    }
+    return new RoutingDataSource(primaryDataSource, replicas, maxLag, RoutingDataSource.MYSQL_LAG);
+  }
+
+  //replaces the data source of the Spring Boot auto configuration, the connection is only taken at the first statement
+  @Bean
+  @Primary
+  public DataSource dataSource(RoutingDataSource routingDataSource)
+  {
+    return new LazyConnectionDataSourceProxy(routingDataSource);
+  }
+}
@@ -0,0 +1,168 @@
+package com.example.tickets.jdbc;
+
+import com.example.tickets.bean.QueryStatistics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms, row and error counts of the SQL statements, per logical statement name.
+ * <p>
+ * The name is the DAO method that runs the statement. It is found with a {@link StackWalker} the first time a SQL
+ * text is seen and cached by the text, after that recording a statement is a map lookup and a few {@link LongAdder}
+ * increments, cheap enough to stay on in production.
+ */
+@Log4j2
+@Component
+public class QueryMetrics
+{
+  //upper bounds of the histogram buckets in microseconds, the last bucket has no bound
+  private static final long[] BUCKETS = {
+      100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000, 2_500_000,
+      5_000_000, 10_000_000};
+
+  private static final Set<String> SKIPPED_PACKAGES = Set.of("org.springframework.", "java.", "jdk.", "sun.");
+  private static final Set<String> SKIPPED_CLASSES  = Set.of(QueryMetrics.class.getName(),
+      InstrumentedNamedParameterJdbcTemplate.class.getName());
+
+  private static final StackWalker WALKER = StackWalker.getInstance();
+
+  private final long                   slowQueryNanos;
+  private final Map<String, String>    namesBySql = new ConcurrentHashMap<>();
+  private final Map<String, Statement> statements = new ConcurrentHashMap<>();
+
+  @Autowired
+  public QueryMetrics(@Value("${tickets.jdbc.slow-query-threshold:PT0.5S}") Duration slowQueryThreshold)
+  {
+    this.slowQueryNanos = slowQueryThreshold.toNanos();
+  }
+
+  /**
+   * @return the name of the method that runs {@code sql}, resolved only the first time the text is seen
+   */
+  String nameOf(String sql)
+  {
+    String name = namesBySql.get(sql);
+    if (null == name) {
+      name = WALKER.walk(frames -> frames
+          .filter(frame -> !SKIPPED_CLASSES.contains(frame.getClassName()))
+          .filter(frame -> SKIPPED_PACKAGES.stream().noneMatch(frame.getClassName()::startsWith))
+          .map(StackWalker.StackFrame::getMethodName)
+          .findFirst()
+          .orElse("unknown"));
+      namesBySql.putIfAbsent(sql, name);
+    }
+    return name;
+  }
+
+  void record(String name, long nanos, long rows, boolean failed)
+  {
+    Statement statement = statements.computeIfAbsent(name, key -> new Statement());
+    statement.record(nanos, rows, failed);
+
+    if (nanos >= slowQueryNanos) {
+      log.warn("Slow query {} took {} ms, {} rows", name, nanos / 1_000_000, rows);
+    }
+  }
+
+  public List<QueryStatistics> getStatistics()
+  {
+    List<QueryStatistics> statistics = new ArrayList<>();
+    statements.forEach((name, statement) -> statistics.add(statement.toStatistics(name)));
+    statistics.sort(Comparator.comparingDouble(QueryStatistics::getTotalMillis).reversed());
+    return statistics;
+  }
+
+  private static double toMillis(long nanos)
+  {
+    return nanos / 1_000_000.0;
+  }
+
+  private static final class Statement
+  {
+    private final LongAdder[]     buckets    = new LongAdder[BUCKETS.length + 1];
+    private final LongAdder       count      = new LongAdder();
+    private final LongAdder       errors     = new LongAdder();
+    private final LongAdder       rows       = new LongAdder();
+    private final LongAdder       totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos   = new LongAccumulator(Math::max, 0);
+
+    private Statement()
+    {
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] = new LongAdder();
+      }
+    }
+
+    void record(long nanos, long rowCount, boolean failed)
+    {
+      count.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulate(nanos);
+      rows.add(rowCount);
+      if (failed) {
+        errors.increment();
+      }
+
+      long micros = nanos / 1_000;
+      int bucket = 0;
+      while (bucket < BUCKETS.length && micros > BUCKETS[bucket]) {
+        bucket++;
+      }
+      buckets[bucket].increment();
+    }
+
+    QueryStatistics toStatistics(String name)
+    {
+      long[] counts = new long[buckets.length];
+      long executions = 0;
+      Map<String, Long> histogram = new LinkedHashMap<>();
+      for (int i = 0; i < buckets.length; i++) {
+        counts[i] = buckets[i].sum();
+        executions += counts[i];
+        histogram.put(i < BUCKETS.length ? "<=" + BUCKETS[i] / 1_000.0 + "ms" : "more", counts[i]);
+      }
+
+      long total = totalNanos.sum();
+      return QueryStatistics
+          .builder()
+          .name(name)
+          .count(count.sum())
+          .errors(errors.sum())
+          .rows(rows.sum())
+          .totalMillis(toMillis(total))
+          .meanMillis(0 == executions ? 0 : toMillis(total) / executions)
+          .maxMillis(toMillis(maxNanos.get()))
+          .p50Millis(percentile(counts, executions, 0.50))
+          .p95Millis(percentile(counts, executions, 0.95))
+          .p99Millis(percentile(counts, executions, 0.99))
+          .histogram(histogram)
+          .build();
+    }
+
+    private double percentile(long[] counts, long executions, double percentile)
+    {
+      long rank = (long) Math.ceil(executions * percentile);
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank && seen > 0) {
+          return i < BUCKETS.length ? BUCKETS[i] / 1_000.0 : toMillis(maxNanos.get());
+        }
+      }
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,178 @@
+package com.example.tickets.jdbc;
+
+import com.example.tickets.bean.DataSourceStatistics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends read-only transactions round robin to the replicas and everything else to the primary.
+ * <p>
+ * The lag of every replica is checked every {@code tickets.datasource.lag-check-interval}. A replica that is more than
+ * {@code tickets.datasource.max-replica-lag} behind, doesn't replicate or can't be reached gets no reads until it
+ * catches up, when no replica is left the reads go to the primary. Must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so the connection is taken after the
+ * transaction is marked read-only.
+ * <p>
+ * The replica pools are created for this data source only and are closed with it, the primary is left to its bean.
+ */
+@Log4j2
+public class RoutingDataSource extends AbstractRoutingDataSource implements DisposableBean
+{
+  static final String PRIMARY = "primary";
+
+  /**
+   * Seconds a MySQL replica is behind its source, {@code null} if it doesn't replicate.
+   */
+  public static final LagProbe MYSQL_LAG = replica -> {
+    try (Connection connection = replica.getConnection();
+         Statement statement = connection.createStatement()) {
+      try (ResultSet rs = statement.executeQuery("SHOW REPLICA STATUS")) {
+        return rs.next() ? secondsBehind(rs, "Seconds_Behind_Source") : null;
+      }
+      catch (SQLException e) {
+        //before MySQL 8.0.22
+        try (ResultSet rs = statement.executeQuery("SHOW SLAVE STATUS")) {
+          return rs.next() ? secondsBehind(rs, "Seconds_Behind_Master") : null;
+        }
+      }
+    }
+  };
+
+  private final Map<String, DataSource> replicas;
+  private final long                    maxLagSeconds;
+  private final LagProbe                lagProbe;
+  private final Map<String, LongAdder>  connections = new LinkedHashMap<>();
+  private final Map<String, Long>       lags        = new ConcurrentHashMap<>();
+  private final AtomicInteger           next        = new AtomicInteger();
+
+  private volatile List<String> healthyReplicas = new ArrayList<>();
+
+  public RoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag, LagProbe lagProbe)
+  {
+    this.replicas = new LinkedHashMap<>(replicas);
+    this.maxLagSeconds = maxLag.getSeconds();
+    this.lagProbe = lagProbe;
+
+    Map<Object, Object> targets = new HashMap<>(replicas);
+    targets.put(PRIMARY, primary);
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+
+    connections.put(PRIMARY, new LongAdder());
+    replicas.keySet().forEach(name -> connections.put(name, new LongAdder()));
+  }
+
+  @Override
+  public void afterPropertiesSet()
+  {
+    super.afterPropertiesSet();
+    checkReplicas();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey()
+  {
+    String key = PRIMARY;
+    if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      List<String> candidates = healthyReplicas;
+      if (!candidates.isEmpty()) {
+        key = candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+      }
+    }
+    connections.get(key).increment();
+    return key;
+  }
+
+  @Scheduled(fixedDelayString = "${tickets.datasource.lag-check-interval:PT5S}")
+  public void checkReplicas()
+  {
+    List<String> healthy = new ArrayList<>();
+    replicas.forEach((name, replica) -> {
+      Long lag;
+      try {
+        lag = lagProbe.secondsBehind(replica);
+      }
+      catch (SQLException | RuntimeException e) {
+        log.warn("Lag check of {} failed: {}", name, e.getMessage());
+        lag = null;
+      }
+
+      if (null == lag) {
+        lags.remove(name);
+      }
+      else {
+        lags.put(name, lag);
+      }
+      if (null != lag && lag <= maxLagSeconds) {
+        healthy.add(name);
+      }
+    });
+
+    if (healthy.size() < healthyReplicas.size()) {
+      log.warn("Reads go to {} of {} replicas", healthy.size(), replicas.size());
+    }
+    healthyReplicas = healthy;
+  }
+
+  public List<DataSourceStatistics> getStatistics()
+  {
+    List<String> healthy = healthyReplicas;
+    List<DataSourceStatistics> statistics = new ArrayList<>();
+    connections.forEach((name, count) -> statistics.add(DataSourceStatistics
+        .builder()
+        .name(name)
+        .connections(count.sum())
+        .healthy(PRIMARY.equals(name) || healthy.contains(name))
+        .lagSeconds(lags.get(name))
+        .build()));
+    return statistics;
+  }
+
+  @Override
+  public void destroy()
+  {
+    replicas.forEach((name, replica) -> {
+      if (replica instanceof AutoCloseable) {
+        try {
+          ((AutoCloseable) replica).close();
+        }
+        catch (Exception e) {
+          log.warn("Closing {} failed: {}", name, e.getMessage());
+        }
+      }
+    });
+  }
+
+  private static Long secondsBehind(ResultSet rs, String column) throws SQLException
+  {
+    long seconds = rs.getLong(column);
+    return rs.wasNull() ? null : seconds;
+  }
+
+  @FunctionalInterface
+  public interface LagProbe
+  {
+    /**
+     * @return how many seconds the replica is behind the primary or {@code null} if it doesn't replicate
+     */
+    Long secondsBehind(DataSource replica) throws SQLException;
+  }
+}
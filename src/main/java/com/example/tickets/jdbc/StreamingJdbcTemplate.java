@@ -0,0 +1,32 @@
+package com.example.tickets.jdbc;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * {@link JdbcTemplate} that reads the rows one by one from the server instead of loading the whole result set into
+ * memory.
+ * <p>
+ * Connector/J streams only with the fetch size {@link Integer#MIN_VALUE}, which other drivers such as H2 reject. Every
+ * other database gets {@link #FETCH_SIZE}, which drivers with server side cursors use the same way.
+ */
+public class StreamingJdbcTemplate extends JdbcTemplate
+{
+  static final int FETCH_SIZE = 1000;
+
+  public StreamingJdbcTemplate(DataSource dataSource)
+  {
+    super(dataSource);
+  }
+
+  @Override
+  protected void applyStatementSettings(Statement stmt) throws SQLException
+  {
+    super.applyStatementSettings(stmt);
+    boolean mysql = "MySQL".equals(stmt.getConnection().getMetaData().getDatabaseProductName());
+    stmt.setFetchSize(mysql ? Integer.MIN_VALUE : FETCH_SIZE);
+  }
+}
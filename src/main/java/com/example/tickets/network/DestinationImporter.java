@@ -0,0 +1,284 @@
+package com.example.tickets.network;
+
+import com.example.tickets.TicketDao;
+import com.example.tickets.bean.DestinationInfo;
+import com.example.tickets.bean.ImportError;
+import com.example.tickets.bean.ImportResult;
+import com.example.tickets.enums.DestinationFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads a timetable line by line, validates every row and upserts the valid ones into {@code train} in batches of
+ * {@code tickets.import.batch-size}.
+ * <p>
+ * Only one batch is held in memory, so the size of the timetable is not limited. A town pair that appears more than
+ * once wins with its last row, as if the rows were imported one by one; town names are compared without their case,
+ * like the collation of {@code train} does. Refreshing the fares is left to the caller.
+ * <p>
+ * A CSV field may be quoted to hold commas, a quote inside it is written twice. A row must fit on one line.
+ */
+@Component
+public class DestinationImporter
+{
+  static final int MAX_REPORTED_ERRORS = 1000;
+
+  //columns of the train table
+  private static final int        MAX_TOWN_LENGTH = 100;
+  private static final BigDecimal MAX_PRICE       = new BigDecimal("99999999.99");
+
+  private final TicketDao    dao;
+  private final ObjectMapper objectMapper;
+  private final int          batchSize;
+
+  @Autowired
+  public DestinationImporter(TicketDao dao, ObjectMapper objectMapper,
+                             @Value("${tickets.import.batch-size:500}") int batchSize)
+  {
+    this.dao = dao;
+    this.objectMapper = objectMapper;
+    this.batchSize = batchSize;
+  }
+
+  public ImportResult importDestinations(BufferedReader body, DestinationFormat format)
+  {
+    Map<String, DestinationInfo> batch = new LinkedHashMap<>();
+    List<ImportError> errors = new ArrayList<>();
+    int inserted = 0;
+    int updated = 0;
+    int rejected = 0;
+    boolean first = true;
+
+    try {
+      int line = 0;
+      for (String text = body.readLine(); null != text; text = body.readLine()) {
+        line++;
+        if (text.isBlank()) {
+          continue;
+        }
+        if (first && DestinationFormat.CSV == format && isHeader(text)) {
+          first = false;
+          continue;
+        }
+        first = false;
+
+        DestinationInfo destination;
+        try {
+          destination = DestinationFormat.CSV == format ? parseCsv(text) : parseJson(text);
+          validate(destination);
+        }
+        catch (IllegalArgumentException e) {
+          rejected++;
+          if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(ImportError
+                .builder()
+                .line(line)
+                .message(e.getMessage())
+                .build());
+          }
+          continue;
+        }
+
+        if (null != batch.put(key(destination), destination)) {
+          updated++;
+        }
+        if (batch.size() >= batchSize) {
+          int rows = dao.upsertDestinations(new ArrayList<>(batch.values()));
+          inserted += rows;
+          updated += batch.size() - rows;
+          batch.clear();
+        }
+      }
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    if (!batch.isEmpty()) {
+      int rows = dao.upsertDestinations(new ArrayList<>(batch.values()));
+      inserted += rows;
+      updated += batch.size() - rows;
+    }
+
+    return ImportResult
+        .builder()
+        .inserted(inserted)
+        .updated(updated)
+        .rejected(rejected)
+        .errors(errors)
+        .build();
+  }
+
+  private static String key(DestinationInfo destination)
+  {
+    return destination.getTown1().toLowerCase(Locale.ROOT) + '\n' + destination.getTown2().toLowerCase(Locale.ROOT);
+  }
+
+  private static boolean isHeader(String text)
+  {
+    try {
+      return "town1".equalsIgnoreCase(splitCsv(text).get(0));
+    }
+    catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private static DestinationInfo parseCsv(String text)
+  {
+    List<String> fields = splitCsv(text);
+    if (4 != fields.size()) {
+      throw new IllegalArgumentException("Expected 4 columns: town1,town2,distance,initialPrice!");
+    }
+    return DestinationInfo
+        .builder()
+        .town1(fields.get(0))
+        .town2(fields.get(1))
+        .distance(parseDistance(fields.get(2)))
+        .initialPrice(parsePrice(fields.get(3)))
+        .build();
+  }
+
+  /**
+   * Splits a CSV line on the commas outside of quotes, the fields come back trimmed and unquoted.
+   */
+  static List<String> splitCsv(String text)
+  {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    int i = 0;
+    while (true) {
+      while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+        i++;
+      }
+      if (i < text.length() && '"' == text.charAt(i)) {
+        i++;
+        while (true) {
+          if (i >= text.length()) {
+            throw new IllegalArgumentException("A quoted field is not closed!");
+          }
+          char c = text.charAt(i++);
+          if ('"' != c) {
+            field.append(c);
+          }
+          else if (i < text.length() && '"' == text.charAt(i)) {
+            field.append('"');
+            i++;
+          }
+          else {
+            break;
+          }
+        }
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+          i++;
+        }
+        if (i < text.length() && ',' != text.charAt(i)) {
+          throw new IllegalArgumentException("Unexpected text after a quoted field!");
+        }
+      }
+      else {
+        while (i < text.length() && ',' != text.charAt(i)) {
+          field.append(text.charAt(i++));
+        }
+      }
+
+      fields.add(field.toString().trim());
+      field.setLength(0);
+      if (i >= text.length()) {
+        return fields;
+      }
+      //skip the comma
+      i++;
+    }
+  }
+
+  private DestinationInfo parseJson(String text)
+  {
+    JsonNode node;
+    try {
+      node = objectMapper.readTree(text);
+    }
+    catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Invalid JSON!");
+    }
+    if (!node.isObject()) {
+      throw new IllegalArgumentException("Invalid JSON!");
+    }
+    return DestinationInfo
+        .builder()
+        .town1(text(node, "town1"))
+        .town2(text(node, "town2"))
+        .distance(parseDistance(text(node, "distance")))
+        .initialPrice(parsePrice(text(node, "initialPrice")))
+        .build();
+  }
+
+  private static void validate(DestinationInfo destination)
+  {
+    if (null == destination.getTown1() || destination.getTown1().isEmpty() ||
+        null == destination.getTown2() || destination.getTown2().isEmpty()) {
+      throw new IllegalArgumentException("town1 and town2 are required!");
+    }
+    if (destination.getTown1().length() > MAX_TOWN_LENGTH || destination.getTown2().length() > MAX_TOWN_LENGTH) {
+      throw new IllegalArgumentException("A town can have at most " + MAX_TOWN_LENGTH + " characters!");
+    }
+    if (destination.getTown1().equalsIgnoreCase(destination.getTown2())) {
+      throw new IllegalArgumentException("town1 and town2 must be different!");
+    }
+    if (null == destination.getDistance() || destination.getDistance() <= 0 ||
+        destination.getDistance() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The distance must be a positive number!");
+    }
+    BigDecimal price = destination.getInitialPrice();
+    if (null == price || price.signum() < 0 || price.compareTo(MAX_PRICE) > 0 || price.stripTrailingZeros().scale() > 2) {
+      throw new IllegalArgumentException("The initial price must be between 0 and " + MAX_PRICE +
+          " with at most 2 decimals!");
+    }
+  }
+
+  private static Long parseDistance(String value)
+  {
+    if (null == value || value.isEmpty()) {
+      return null;
+    }
+    try {
+      return Long.parseLong(value);
+    }
+    catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid distance: " + value + "!");
+    }
+  }
+
+  private static BigDecimal parsePrice(String value)
+  {
+    if (null == value || value.isEmpty()) {
+      return null;
+    }
+    try {
+      return new BigDecimal(value);
+    }
+    catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid initial price: " + value + "!");
+    }
+  }
+
+  private static String text(JsonNode node, String field)
+  {
+    JsonNode value = node.get(field);
+    return null == value || value.isNull() ? null : value.asText().trim();
+  }
+}
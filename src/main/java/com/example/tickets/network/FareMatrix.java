@@ -0,0 +1,143 @@
+package com.example.tickets.network;
+
+import com.example.tickets.TicketDao;
+import com.example.tickets.bean.Train;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory copy of the whole {@code train} table keyed by (town1, town2).
+ * <p>
+ * The towns are compared without the case, like the MySQL collation of the table compares them. A town keeps the
+ * spelling of the first row it appears in.
+ * <p>
+ * The table is loaded on first use and replaced as a whole by {@link #refresh()}, so readers always see one
+ * consistent {@link Snapshot} without touching the database.
+ */
+@Component
+public class FareMatrix
+{
+  private final TicketDao                 dao;
+  private final ApplicationEventPublisher publisher;
+
+  private volatile Snapshot snapshot;
+
+  @Autowired
+  public FareMatrix(TicketDao dao, ApplicationEventPublisher publisher)
+  {
+    this.dao = dao;
+    this.publisher = publisher;
+  }
+
+  public Snapshot snapshot()
+  {
+    Snapshot current = snapshot;
+    if (null == current) {
+      synchronized (this) {
+        current = snapshot;
+        if (null == current) {
+          current = new Snapshot(dao.loadTrains());
+          snapshot = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Reloads the {@code train} table, atomically swaps the snapshot seen by readers and publishes a
+   * {@link FaresRefreshedEvent} for the data derived from it.
+   */
+  public Snapshot refresh()
+  {
+    Snapshot fresh;
+    synchronized (this) {
+      fresh = new Snapshot(dao.loadTrains());
+      snapshot = fresh;
+    }
+    publisher.publishEvent(new FaresRefreshedEvent(fresh));
+    return fresh;
+  }
+
+  public static final class Snapshot
+  {
+    private final Map<String, Integer> townIndex = new HashMap<>();
+    private final List<String>         towns     = new ArrayList<>();
+    private final Map<Long, Train>     routes    = new HashMap<>();
+    private final List<Train>          trains;
+
+    private Snapshot(List<Train> trains)
+    {
+      this.trains = Collections.unmodifiableList(new ArrayList<>(trains));
+      for (Train train : trains) {
+        int from = register(train.getTown1());
+        int to = register(train.getTown2());
+        // the row with the lowest id wins when the same pair of towns is present more than once, in any case
+        routes.putIfAbsent(key(from, to), train);
+      }
+    }
+
+    /**
+     * @return the train between the two towns or {@code null} if there is no direct train
+     */
+    public Train find(String townFrom, String townTo)
+    {
+      Integer from = townIndex.get(normalize(townFrom));
+      Integer to = townIndex.get(normalize(townTo));
+      if (null == from || null == to) {
+        return null;
+      }
+      return routes.get(key(from, to));
+    }
+
+    public boolean exists(String townFrom, String townTo)
+    {
+      return null != find(townFrom, townTo);
+    }
+
+    public List<String> getTowns()
+    {
+      return Collections.unmodifiableList(towns);
+    }
+
+    public List<Train> getTrains()
+    {
+      return trains;
+    }
+
+    /**
+     * @return the position of the town in {@link #getTowns()} or {@code -1} if no train stops there
+     */
+    public int indexOf(String town)
+    {
+      Integer index = townIndex.get(normalize(town));
+      return null == index ? -1 : index;
+    }
+
+    private int register(String town)
+    {
+      return townIndex.computeIfAbsent(normalize(town), t -> {
+        towns.add(town);
+        return towns.size() - 1;
+      });
+    }
+
+    private static String normalize(String town)
+    {
+      return null == town ? null : town.toLowerCase(Locale.ROOT);
+    }
+
+    private static long key(int from, int to)
+    {
+      return ((long) from << 32) | (to & 0xFFFFFFFFL);
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.example.tickets.network;
+
+/**
+ * Published by {@link FareMatrix} after a new snapshot of the {@code train} table has been swapped in.
+ */
+public class FaresRefreshedEvent
+{
+  private final FareMatrix.Snapshot snapshot;
+
+  public FaresRefreshedEvent(FareMatrix.Snapshot snapshot)
+  {
+    this.snapshot = snapshot;
+  }
+
+  public FareMatrix.Snapshot getSnapshot()
+  {
+    return snapshot;
+  }
+}
@@ -0,0 +1,186 @@
+package com.example.tickets.network;
+
+import com.example.tickets.bean.Route;
+import com.example.tickets.bean.Train;
+import com.example.tickets.enums.RouteCriteria;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cheapest and shortest itineraries between every two towns, precomputed from the {@link FareMatrix}.
+ * <p>
+ * The all-pairs tables are built once with Floyd-Warshall and rebuilt on a background thread after every
+ * {@link FaresRefreshedEvent}, so a route query only walks the next-hop table and costs O(path length). Queries keep
+ * using the previous tables while a rebuild runs.
+ */
+@Component
+public class RouteFinder
+{
+  private static final int NO_HOP = -1;
+
+  private final FareMatrix      fareMatrix;
+  private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "route-finder");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private volatile RouteTable table;
+
+  @Autowired
+  public RouteFinder(FareMatrix fareMatrix)
+  {
+    this.fareMatrix = fareMatrix;
+  }
+
+  /**
+   * @return the itinerary or {@code null} if the towns are not connected
+   */
+  public Route find(String townFrom, String townTo, RouteCriteria criteria)
+  {
+    RouteTable current = table;
+    if (null == current) {
+      synchronized (this) {
+        current = table;
+        if (null == current) {
+          current = new RouteTable(fareMatrix.snapshot());
+          table = current;
+        }
+      }
+    }
+    return current.find(townFrom, townTo, criteria);
+  }
+
+  @EventListener
+  public void onFaresRefreshed(FaresRefreshedEvent event)
+  {
+    rebuilder.execute(() -> {
+      // a newer refresh is already queued, there is no point building tables for this one
+      if (fareMatrix.snapshot() != event.getSnapshot()) {
+        return;
+      }
+      RouteTable rebuilt = new RouteTable(event.getSnapshot());
+      synchronized (this) {
+        table = rebuilt;
+      }
+    });
+  }
+
+  @PreDestroy
+  public void shutdown()
+  {
+    rebuilder.shutdownNow();
+  }
+
+  static final class RouteTable
+  {
+    private final FareMatrix.Snapshot snapshot;
+    private final List<Train>         trains;
+    private final int                 n;
+    private final int[][]             next = new int[RouteCriteria.values().length][];
+    private final int[][]             edge = new int[RouteCriteria.values().length][];
+
+    RouteTable(FareMatrix.Snapshot snapshot)
+    {
+      this.snapshot = snapshot;
+      trains = snapshot.getTrains();
+      n = snapshot.getTowns().size();
+      for (RouteCriteria criteria : RouteCriteria.values()) {
+        build(criteria);
+      }
+    }
+
+    Route find(String townFrom, String townTo, RouteCriteria criteria)
+    {
+      int from = snapshot.indexOf(townFrom);
+      int to = snapshot.indexOf(townTo);
+      if (from < 0 || to < 0 || from == to) {
+        return null;
+      }
+
+      int[] hops = next[criteria.ordinal()];
+      int[] edges = edge[criteria.ordinal()];
+      if (NO_HOP == hops[from * n + to]) {
+        return null;
+      }
+
+      List<Train> legs = new ArrayList<>();
+      int totalDistance = 0;
+      BigDecimal totalPrice = BigDecimal.ZERO;
+      for (int current = from; current != to; ) {
+        int hop = hops[current * n + to];
+        Train leg = trains.get(edges[current * n + hop]);
+        legs.add(leg);
+        totalDistance += null == leg.getDistance() ? 0 : leg.getDistance();
+        totalPrice = null == leg.getInitialPrice() ? totalPrice : totalPrice.add(leg.getInitialPrice());
+        current = hop;
+      }
+
+      return Route
+          .builder()
+          .legs(legs)
+          .totalDistance(totalDistance)
+          .totalPrice(totalPrice)
+          .build();
+    }
+
+    private void build(RouteCriteria criteria)
+    {
+      double[] weights = new double[n * n];
+      int[] hops = new int[n * n];
+      int[] edges = new int[n * n];
+      Arrays.fill(weights, Double.POSITIVE_INFINITY);
+      Arrays.fill(hops, NO_HOP);
+      Arrays.fill(edges, NO_HOP);
+
+      for (int t = 0; t < trains.size(); t++) {
+        Train train = trains.get(t);
+        Double weight = weightOf(train, criteria);
+        int from = snapshot.indexOf(train.getTown1());
+        int to = snapshot.indexOf(train.getTown2());
+        if (null == weight || from == to || weight >= weights[from * n + to]) {
+          continue;
+        }
+        weights[from * n + to] = weight;
+        hops[from * n + to] = to;
+        edges[from * n + to] = t;
+      }
+
+      for (int k = 0; k < n; k++) {
+        for (int i = 0; i < n; i++) {
+          double throughK = weights[i * n + k];
+          if (Double.isInfinite(throughK)) {
+            continue;
+          }
+          for (int j = 0; j < n; j++) {
+            double candidate = throughK + weights[k * n + j];
+            if (candidate < weights[i * n + j]) {
+              weights[i * n + j] = candidate;
+              hops[i * n + j] = hops[i * n + k];
+            }
+          }
+        }
+      }
+
+      next[criteria.ordinal()] = hops;
+      edge[criteria.ordinal()] = edges;
+    }
+
+    private static Double weightOf(Train train, RouteCriteria criteria)
+    {
+      if (RouteCriteria.CHEAPEST == criteria) {
+        return null == train.getInitialPrice() ? null : train.getInitialPrice().doubleValue();
+      }
+      return null == train.getDistance() ? null : train.getDistance().doubleValue();
+    }
+  }
+}
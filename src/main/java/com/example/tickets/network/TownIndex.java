@@ -0,0 +1,176 @@
+package com.example.tickets.network;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Prefix search over the towns of the {@link FareMatrix}, for the autocomplete of the destinations.
+ * <p>
+ * The towns are kept in one array sorted by their search key (lower case, without diacritics), so a search is a binary
+ * search for the prefix and a scan of the following keys, without any database access. After a
+ * {@link FaresRefreshedEvent} only the new towns are sorted and merged into a copy of the array.
+ */
+@Component
+public class TownIndex
+{
+  private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+  private final FareMatrix fareMatrix;
+
+  private volatile Entries entries;
+
+  @Autowired
+  public TownIndex(FareMatrix fareMatrix)
+  {
+    this.fareMatrix = fareMatrix;
+  }
+
+  /**
+   * @return at most {@code limit} towns whose name starts with {@code prefix}, ignoring case and diacritics
+   */
+  public List<String> search(String prefix, int limit)
+  {
+    Entries current = entries;
+    if (null == current) {
+      synchronized (this) {
+        current = entries;
+        if (null == current) {
+          current = Entries.of(fareMatrix.snapshot().getTowns());
+          entries = current;
+        }
+      }
+    }
+    return current.search(key(null == prefix ? "" : prefix), limit);
+  }
+
+  @EventListener
+  public synchronized void onFaresRefreshed(FaresRefreshedEvent event)
+  {
+    Entries current = entries;
+    if (null == current) {
+      return;
+    }
+    FareMatrix.Snapshot snapshot = event.getSnapshot();
+    entries = current.containedIn(snapshot) ? current.merge(snapshot.getTowns()) : Entries.of(snapshot.getTowns());
+  }
+
+  static String key(String town)
+  {
+    return DIACRITICS.matcher(Normalizer.normalize(town, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+  }
+
+  private static final class Entries
+  {
+    private static final Comparator<Town> ORDER = (a, b) -> compare(a.key, a.name, b);
+
+    private final String[] keys;
+    private final String[] names;
+
+    private Entries(Town[] towns)
+    {
+      keys = new String[towns.length];
+      names = new String[towns.length];
+      for (int i = 0; i < towns.length; i++) {
+        keys[i] = towns[i].key;
+        names[i] = towns[i].name;
+      }
+    }
+
+    static Entries of(List<String> towns)
+    {
+      Town[] sorted = towns.stream().map(Town::new).sorted(ORDER).toArray(Town[]::new);
+      return new Entries(sorted);
+    }
+
+    List<String> search(String prefix, int limit)
+    {
+      // first key that is not smaller than the prefix, every match follows it
+      int from = Arrays.binarySearch(keys, prefix);
+      from = from < 0 ? -from - 1 : from;
+      while (from > 0 && keys[from - 1].equals(prefix)) {
+        from--;
+      }
+
+      List<String> found = new ArrayList<>(Math.min(limit, 16));
+      for (int i = from; i < keys.length && found.size() < limit && keys[i].startsWith(prefix); i++) {
+        found.add(names[i]);
+      }
+      return found;
+    }
+
+    boolean containedIn(FareMatrix.Snapshot snapshot)
+    {
+      for (String name : names) {
+        if (snapshot.indexOf(name) < 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return a copy with the towns of {@code towns} that are not indexed yet, O(n + k log k) for k new towns
+     */
+    Entries merge(List<String> towns)
+    {
+      Set<String> indexed = new HashSet<>(Arrays.asList(names));
+      Town[] added = towns
+          .stream()
+          .filter(town -> !indexed.contains(town))
+          .map(Town::new)
+          .sorted(ORDER)
+          .toArray(Town[]::new);
+      if (0 == added.length) {
+        return this;
+      }
+
+      Town[] merged = new Town[names.length + added.length];
+      int i = 0;
+      int j = 0;
+      for (int k = 0; k < merged.length; k++) {
+        if (j >= added.length || (i < names.length && compare(keys[i], names[i], added[j]) <= 0)) {
+          merged[k] = new Town(keys[i], names[i]);
+          i++;
+        }
+        else {
+          merged[k] = added[j++];
+        }
+      }
+      return new Entries(merged);
+    }
+
+    private static int compare(String key, String name, Town town)
+    {
+      int byKey = key.compareTo(town.key);
+      return 0 != byKey ? byKey : name.compareTo(town.name);
+    }
+
+    private static final class Town
+    {
+      private final String key;
+      private final String name;
+
+      private Town(String name)
+      {
+        this(TownIndex.key(name), name);
+      }
+
+      private Town(String key, String name)
+      {
+        this.key = key;
+        this.name = name;
+      }
+    }
+  }
+}
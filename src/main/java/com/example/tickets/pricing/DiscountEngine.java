@@ -0,0 +1,166 @@
+package com.example.tickets.pricing;
+
+import com.example.tickets.enums.CardType;
+import com.example.tickets.enums.TimeBand;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resolves the discount of a ticket from a rule table built once at startup.
+ * <p>
+ * Every (card type, child, time band) cell gets the biggest percentage of all rules matching it, so a quote costs one
+ * array lookup and one money operation. New card types or time bands only need new rows in {@link #RULES} and
+ * {@link #BANDS}.
+ */
+@Component
+public class DiscountEngine
+{
+  private static final BigDecimal HUNDRED    = BigDecimal.valueOf(100);
+  private static final int        BAND_COUNT = TimeBand.values().length;
+
+  /**
+   * Start of every time band of the day. A band lasts until the start of the next one.
+   * between 7:30 and 9:35 sutrin i 16:00 do 19:30 sledobed cenata ostava sushtata,
+   * mejdu 9:35 i 16:00 i sled 19:30 poluchavame 5% otstupka (the bounds themselves are still peak time)
+   */
+  static final List<BandStart> BANDS = Collections.unmodifiableList(Arrays.asList(
+      new BandStart(LocalTime.MIDNIGHT, TimeBand.PEAK),
+      new BandStart(LocalTime.of(9, 35).plusNanos(1), TimeBand.OFF_PEAK),
+      new BandStart(LocalTime.of(16, 0), TimeBand.PEAK),
+      new BandStart(LocalTime.of(19, 30).plusNanos(1), TimeBand.OFF_PEAK)));
+
+  /**
+   * {@code null} in a rule matches every value.
+   * ako imame semeina karta i dete poluchavame 50%, ako nqmame nikakva karta i dete - 10%,
+   * s karta za hora nad 60 godini poluchavame 34% otstupka vinagi
+   */
+  static final List<Rule> RULES = Collections.unmodifiableList(Arrays.asList(
+      new Rule(null, null, TimeBand.OFF_PEAK, 5),
+      new Rule(CardType.FAMILY, true, null, 50),
+      new Rule(CardType.ELDERLY, null, null, 34),
+      new Rule(CardType.NONE, true, null, 10)));
+
+  private final long[]       bandStarts;
+  private final TimeBand[]   bandOf;
+  private final BigDecimal[] percents;
+
+  public DiscountEngine()
+  {
+    this(BANDS, RULES);
+  }
+
+  DiscountEngine(List<BandStart> bands, List<Rule> rules)
+  {
+    bandStarts = new long[bands.size()];
+    bandOf = new TimeBand[bands.size()];
+    for (int i = 0; i < bands.size(); i++) {
+      bandStarts[i] = bands.get(i).getStart().toNanoOfDay();
+      bandOf[i] = bands.get(i).getBand();
+    }
+
+    percents = new BigDecimal[CardType.values().length * 2 * BAND_COUNT];
+    for (CardType card : CardType.values()) {
+      for (boolean isThereChild : new boolean[]{false, true}) {
+        for (TimeBand band : TimeBand.values()) {
+          int percent = 0;
+          for (Rule rule : rules) {
+            if (rule.matches(card, isThereChild, band)) {
+              percent = Math.max(percent, rule.getPercent());
+            }
+          }
+          percents[index(card, isThereChild, band)] = BigDecimal.valueOf(percent);
+        }
+      }
+    }
+  }
+
+  public TimeBand getTimeBand(LocalTime diapasonTime)
+  {
+    int i = Arrays.binarySearch(bandStarts, diapasonTime.toNanoOfDay());
+    return bandOf[i >= 0 ? i : -i - 2];
+  }
+
+  public BigDecimal getPercent(CardType typeOfCard, boolean isThereChild, TimeBand band)
+  {
+    return percents[index(typeOfCard, isThereChild, band)];
+  }
+
+  /**
+   * Gives the same result, scale included, as subtracting the bigger of the hour and the card discount rounded
+   * with {@link RoundingMode#CEILING}, for every non-negative price with a non-negative scale.
+   */
+  public BigDecimal applyDiscount(BigDecimal priceOfTicket, LocalTime diapasonTime, boolean isThereChild,
+                                  CardType typeOfCard)
+  {
+    return applyPercent(priceOfTicket, getPercent(typeOfCard, isThereChild, getTimeBand(diapasonTime)));
+  }
+
+  public BigDecimal applyPercent(BigDecimal priceOfTicket, BigDecimal percent)
+  {
+    if (0 == percent.signum()) {
+      return priceOfTicket.subtract(BigDecimal.ZERO);
+    }
+    return priceOfTicket.subtract(priceOfTicket.multiply(percent).divide(HUNDRED, RoundingMode.CEILING));
+  }
+
+  private static int index(CardType typeOfCard, boolean isThereChild, TimeBand band)
+  {
+    return (typeOfCard.ordinal() * 2 + (isThereChild ? 1 : 0)) * BAND_COUNT + band.ordinal();
+  }
+
+  static final class BandStart
+  {
+    private final LocalTime start;
+    private final TimeBand  band;
+
+    BandStart(LocalTime start, TimeBand band)
+    {
+      this.start = start;
+      this.band = band;
+    }
+
+    LocalTime getStart()
+    {
+      return start;
+    }
+
+    TimeBand getBand()
+    {
+      return band;
+    }
+  }
+
+  static final class Rule
+  {
+    private final CardType typeOfCard;
+    private final Boolean  isThereChild;
+    private final TimeBand band;
+    private final int      percent;
+
+    Rule(CardType typeOfCard, Boolean isThereChild, TimeBand band, int percent)
+    {
+      this.typeOfCard = typeOfCard;
+      this.isThereChild = isThereChild;
+      this.band = band;
+      this.percent = percent;
+    }
+
+    boolean matches(CardType typeOfCard, boolean isThereChild, TimeBand band)
+    {
+      return (null == this.typeOfCard || this.typeOfCard == typeOfCard)
+          && (null == this.isThereChild || this.isThereChild == isThereChild)
+          && (null == this.band || this.band == band);
+    }
+
+    int getPercent()
+    {
+      return percent;
+    }
+  }
+}
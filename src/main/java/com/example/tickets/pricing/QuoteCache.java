@@ -0,0 +1,201 @@
+package com.example.tickets.pricing;
+
+import com.example.tickets.bean.CacheStatistics;
+import com.example.tickets.enums.CardType;
+import com.example.tickets.enums.TimeBand;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, approximately LRU cache of ticket prices.
+ * <p>
+ * A price depends only on the {@link Key}, so repeated quotes are answered without the fare matrix or any
+ * {@link BigDecimal} math. The prices live in a {@link ConcurrentHashMap}, a lookup takes no lock and only stamps the
+ * time of its access. When the cache grows over {@code tickets.quote-cache.max-size} one thread drops the least
+ * recently used eighth of the prices at once, so the sorting is paid once per many quotes.
+ * <p>
+ * Every {@link #invalidate()} starts a new generation. A price remembers the generation it was computed in and is
+ * ignored in any other, so a quote racing with a fare change can not bring the old price back.
+ */
+@Component
+public class QuoteCache
+{
+  private final int                             maxSize;
+  private final int                             sizeAfterEviction;
+  private final ConcurrentMap<Key, CachedPrice> entries   = new ConcurrentHashMap<>();
+  private final AtomicLong                      hits      = new AtomicLong();
+  private final AtomicLong                      misses    = new AtomicLong();
+  private final AtomicLong                      evictions = new AtomicLong();
+  private final Object                          evictLock = new Object();
+
+  private volatile long generation;
+
+  @Autowired
+  public QuoteCache(@Value("${tickets.quote-cache.max-size:4096}") int maxSize)
+  {
+    this.maxSize = maxSize;
+    this.sizeAfterEviction = maxSize - maxSize / 8;
+  }
+
+  /**
+   * @return the cached price or {@code null} if the key has not been quoted since the last invalidation
+   */
+  public BigDecimal get(Key key)
+  {
+    CachedPrice cached = entries.get(key);
+    if (null == cached || cached.generation != generation) {
+      misses.incrementAndGet();
+      return null;
+    }
+    cached.lastAccess = System.nanoTime();
+    hits.incrementAndGet();
+    return cached.price;
+  }
+
+  public long getGeneration()
+  {
+    return generation;
+  }
+
+  /**
+   * @param generation the {@link #getGeneration()} read before the fares used for the price
+   */
+  public void put(Key key, BigDecimal price, long generation)
+  {
+    if (this.generation != generation || maxSize <= 0) {
+      return;
+    }
+    entries.put(key, new CachedPrice(price, generation));
+    if (entries.size() > maxSize) {
+      evict();
+    }
+  }
+
+  public void invalidate()
+  {
+    synchronized (evictLock) {
+      generation++;
+      entries.clear();
+    }
+  }
+
+  public CacheStatistics getStatistics()
+  {
+    return CacheStatistics
+        .builder()
+        .hits(hits.get())
+        .misses(misses.get())
+        .evictions(evictions.get())
+        .size(entries.size())
+        .maxSize(maxSize)
+        .build();
+  }
+
+  private void evict()
+  {
+    synchronized (evictLock) {
+      //another thread made room while this one waited
+      if (entries.size() <= maxSize) {
+        return;
+      }
+      //the access times are copied, lookups keep changing them while the list is sorted
+      List<Candidate> oldestFirst = new ArrayList<>(entries.size());
+      entries.forEach((key, cached) -> oldestFirst.add(new Candidate(key, cached)));
+      oldestFirst.sort(Comparator.comparingLong(candidate -> candidate.lastAccess));
+      int toEvict = oldestFirst.size() - sizeAfterEviction;
+      for (int i = 0; i < toEvict; i++) {
+        Candidate eldest = oldestFirst.get(i);
+        if (entries.remove(eldest.key, eldest.cached)) {
+          evictions.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  private static final class CachedPrice
+  {
+    private final BigDecimal price;
+    private final long       generation;
+
+    //written without a lock, a lost update only makes the eviction a little less exact
+    private volatile long lastAccess = System.nanoTime();
+
+    private CachedPrice(BigDecimal price, long generation)
+    {
+      this.price = price;
+      this.generation = generation;
+    }
+  }
+
+  private static final class Candidate
+  {
+    private final Key         key;
+    private final CachedPrice cached;
+    private final long        lastAccess;
+
+    private Candidate(Key key, CachedPrice cached)
+    {
+      this.key = key;
+      this.cached = cached;
+      this.lastAccess = cached.lastAccess;
+    }
+  }
+
+  public static final class Key
+  {
+    private final String   townFrom;
+    private final String   townTo;
+    private final String   wayOfTrip;
+    private final CardType typeOfCard;
+    private final boolean  isThereChild;
+    private final TimeBand band;
+    private final int      hash;
+
+    public Key(String townFrom, String townTo, String wayOfTrip, CardType typeOfCard, boolean isThereChild,
+               TimeBand band)
+    {
+      this.townFrom = townFrom;
+      this.townTo = townTo;
+      this.wayOfTrip = wayOfTrip;
+      this.typeOfCard = typeOfCard;
+      this.isThereChild = isThereChild;
+      this.band = band;
+      this.hash = Objects.hash(townFrom, townTo, wayOfTrip, typeOfCard, isThereChild, band);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return hash == key.hash
+          && isThereChild == key.isThereChild
+          && typeOfCard == key.typeOfCard
+          && band == key.band
+          && Objects.equals(townFrom, key.townFrom)
+          && Objects.equals(townTo, key.townTo)
+          && Objects.equals(wayOfTrip, key.wayOfTrip);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return hash;
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.example.tickets.reservation;
+
+import com.example.tickets.TicketDao;
+import com.example.tickets.bean.SweepStatistics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Deletes the unpaid tickets whose seven days for payment are over, in the background instead of on the read path.
+ * <p>
+ * Every run deletes in batches of {@code tickets.sweeper.batch-size} rows, each batch in its own short statement, and
+ * stops after {@code tickets.sweeper.max-batches} so one run can never hold the table for long. The seat counters of
+ * the departures before today are dropped on the same run.
+ */
+@Log4j2
+@Component
+public class ExpiredReservationSweeper
+{
+  private final TicketDao           dao;
+  private final SeatCapacityTracker seatCapacityTracker;
+  private final int                 batchSize;
+  private final int                 maxBatches;
+
+  private volatile SweepStatistics statistics = SweepStatistics.builder().build();
+
+  @Autowired
+  public ExpiredReservationSweeper(TicketDao dao, SeatCapacityTracker seatCapacityTracker,
+                                   @Value("${tickets.sweeper.batch-size:500}") int batchSize,
+                                   @Value("${tickets.sweeper.max-batches:100}") int maxBatches)
+  {
+    this.dao = dao;
+    this.seatCapacityTracker = seatCapacityTracker;
+    this.batchSize = batchSize;
+    this.maxBatches = maxBatches;
+  }
+
+  @Scheduled(initialDelayString = "${tickets.sweeper.interval:PT1M}",
+      fixedDelayString = "${tickets.sweeper.interval:PT1M}")
+  public void sweep()
+  {
+    long started = System.nanoTime();
+    LocalDateTime now = LocalDateTime.now();
+
+    int swept = 0;
+    for (int batch = 0; batch < maxBatches; batch++) {
+      int deleted = dao.removeExpiredReservations(now, batchSize);
+      swept += deleted;
+      if (deleted < batchSize) {
+        break;
+      }
+    }
+
+    seatCapacityTracker.evictBefore(now.toLocalDate());
+
+    long millis = (System.nanoTime() - started) / 1_000_000;
+    SweepStatistics previous = statistics;
+    statistics = SweepStatistics
+        .builder()
+        .runs(previous.getRuns() + 1)
+        .totalRowsSwept(previous.getTotalRowsSwept() + swept)
+        .lastRunRowsSwept(swept)
+        .lastRunMillis(millis)
+        .lastRunAt(now)
+        .build();
+
+    if (swept > 0) {
+      log.info("Removed {} expired reservations in {} ms", swept, millis);
+    }
+  }
+
+  public SweepStatistics getStatistics()
+  {
+    return statistics;
+  }
+}
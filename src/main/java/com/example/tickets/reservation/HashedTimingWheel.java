@@ -0,0 +1,149 @@
+package com.example.tickets.reservation;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel of ticket ids, after Varghese and Lauck.
+ * <p>
+ * A deadline falls into the bucket {@code tick % wheelSize} together with the number of full turns left, so
+ * {@link #schedule} and {@link #cancel} are O(1) no matter how many ids are waiting and {@link #advance} only visits
+ * the buckets of the ticks that passed. Not thread safe, the caller holds the lock.
+ */
+class HashedTimingWheel
+{
+  private final long            tickMillis;
+  private final long            startMillis;
+  private final Node[]          buckets;
+  private final int             mask;
+  private final Map<Long, Node> nodes = new HashMap<>();
+
+  private long currentTick;
+
+  /**
+   * @param wheelSize rounded up to a power of two
+   */
+  HashedTimingWheel(long tickMillis, int wheelSize, long startMillis)
+  {
+    if (tickMillis <= 0 || wheelSize <= 0) {
+      throw new IllegalArgumentException("The tick and the size of the wheel must be positive!");
+    }
+    int size = Integer.highestOneBit(wheelSize);
+    size = size < wheelSize ? size << 1 : size;
+
+    this.tickMillis = tickMillis;
+    this.startMillis = startMillis;
+    this.buckets = new Node[size];
+    this.mask = size - 1;
+  }
+
+  /**
+   * Schedules the id for {@code deadlineMillis}, replacing its previous deadline. A deadline that has already passed
+   * expires on the next {@link #advance}.
+   */
+  void schedule(long id, long deadlineMillis)
+  {
+    cancel(id);
+
+    long deadlineTick = Math.max(currentTick, ceilDiv(deadlineMillis - startMillis, tickMillis));
+    Node node = new Node(id, (deadlineTick - currentTick) / buckets.length);
+    link(node, (int) (deadlineTick & mask));
+    nodes.put(id, node);
+  }
+
+  /**
+   * @return {@code false} if the id was not scheduled
+   */
+  boolean cancel(long id)
+  {
+    Node node = nodes.remove(id);
+    if (null == node) {
+      return false;
+    }
+    unlink(node);
+    return true;
+  }
+
+  /**
+   * Moves the wheel to {@code nowMillis} and collects the ids whose deadline has passed.
+   */
+  void advance(long nowMillis, List<Long> expired)
+  {
+    long targetTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+    long passedTicks = targetTick - currentTick + 1;
+    if (passedTicks <= 0) {
+      return;
+    }
+
+    // after a long pause a bucket is passed several times, one visit settles all of them
+    int visitedBuckets = (int) Math.min(passedTicks, buckets.length);
+    for (int i = 0; i < visitedBuckets; i++) {
+      long tick = currentTick + i;
+      long passes = (targetTick - tick) / buckets.length + 1;
+      for (Node node = buckets[(int) (tick & mask)]; null != node; ) {
+        Node next = node.next;
+        if (node.rounds < passes) {
+          unlink(node);
+          nodes.remove(node.id);
+          expired.add(node.id);
+        }
+        else {
+          node.rounds -= passes;
+        }
+        node = next;
+      }
+    }
+    currentTick = targetTick + 1;
+  }
+
+  int size()
+  {
+    return nodes.size();
+  }
+
+  private void link(Node node, int bucket)
+  {
+    node.bucket = bucket;
+    node.next = buckets[bucket];
+    if (null != node.next) {
+      node.next.prev = node;
+    }
+    buckets[bucket] = node;
+  }
+
+  private void unlink(Node node)
+  {
+    if (null == node.prev) {
+      buckets[node.bucket] = node.next;
+    }
+    else {
+      node.prev.next = node.next;
+    }
+    if (null != node.next) {
+      node.next.prev = node.prev;
+    }
+    node.prev = null;
+    node.next = null;
+  }
+
+  private static long ceilDiv(long x, long y)
+  {
+    return -Math.floorDiv(-x, y);
+  }
+
+  private static final class Node
+  {
+    private final long id;
+    private       long rounds;
+    private       int  bucket;
+    private       Node prev;
+    private       Node next;
+
+    private Node(long id, long rounds)
+    {
+      this.id = id;
+      this.rounds = rounds;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package com.example.tickets.reservation;
+
+import com.example.tickets.TicketDao;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Payment holds of the unpaid tickets, expired the tick after their seven days end.
+ * <p>
+ * Every reservation schedules its tickets in a {@link HashedTimingWheel}, paying or removing a ticket cancels it. A
+ * tick deletes all tickets that expired together with one {@code DELETE ... WHERE id IN (...)} per
+ * {@code tickets.holds.batch-size} ids. The delete re-checks {@code is_pays} and {@code dateAfterSevenDays}, so a hold
+ * that is stale (the ticket was paid by another instance or its dates were moved) deletes nothing, and
+ * {@link ExpiredReservationSweeper} still removes whatever a hold missed.
+ */
+@Log4j2
+@Component
+public class ReservationHolds
+{
+  private static final int WHEEL_SIZE = 4096;
+
+  private final TicketDao         dao;
+  private final Clock             clock;
+  private final int               batchSize;
+  private final HashedTimingWheel wheel;
+
+  @Autowired
+  public ReservationHolds(TicketDao dao,
+                          @Value("${tickets.holds.tick:PT1S}") Duration tick,
+                          @Value("${tickets.holds.batch-size:500}") int batchSize)
+  {
+    this(dao, tick, batchSize, Clock.systemDefaultZone());
+  }
+
+  ReservationHolds(TicketDao dao, Duration tick, int batchSize, Clock clock)
+  {
+    this.dao = dao;
+    this.clock = clock;
+    this.batchSize = batchSize;
+    this.wheel = new HashedTimingWheel(tick.toMillis(), WHEEL_SIZE, clock.millis());
+  }
+
+  public void hold(List<Long> ticketIds, LocalDateTime dateAfterSevenDays)
+  {
+    long deadline = toMillis(dateAfterSevenDays);
+    synchronized (wheel) {
+      for (Long ticketId : ticketIds) {
+        wheel.schedule(ticketId, deadline);
+      }
+    }
+  }
+
+  public void release(Long ticketId)
+  {
+    synchronized (wheel) {
+      wheel.cancel(ticketId);
+    }
+  }
+
+  public int size()
+  {
+    synchronized (wheel) {
+      return wheel.size();
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${tickets.holds.tick:PT1S}")
+  public void expire()
+  {
+    List<Long> expired = new ArrayList<>();
+    synchronized (wheel) {
+      wheel.advance(clock.millis(), expired);
+    }
+    if (expired.isEmpty()) {
+      return;
+    }
+
+    LocalDateTime now = LocalDateTime.now(clock);
+    int removed = 0;
+    for (int from = 0; from < expired.size(); from += batchSize) {
+      removed += dao.removeExpiredHolds(expired.subList(from, Math.min(expired.size(), from + batchSize)), now);
+    }
+    log.debug("{} holds expired, {} unpaid tickets removed", expired.size(), removed);
+  }
+
+  //the wheel lives in memory only, after a restart the holds come back from the ticket table
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild()
+  {
+    int[] loaded = {0};
+    dao.loadUnpaidHolds((ticketId, dateAfterSevenDays) -> {
+      long deadline = toMillis(dateAfterSevenDays);
+      synchronized (wheel) {
+        wheel.schedule(ticketId, deadline);
+      }
+      loaded[0]++;
+    });
+    log.info("Loaded {} payment holds", loaded[0]);
+  }
+
+  private long toMillis(LocalDateTime dateTime)
+  {
+    ZoneId zone = clock.getZone();
+    return dateTime.atZone(zone).toInstant().toEpochMilli();
+  }
+}
@@ -0,0 +1,232 @@
+package com.example.tickets.reservation;
+
+import com.example.tickets.TicketDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Free seats per (train, departure date), counted in memory with one atomic counter per departure.
+ * <p>
+ * A booking takes its seats from the counter with a CAS, so bookings on different trains never contend and a full
+ * train is rejected without any write. Only then {@link TicketDao#reserveSeats} confirms the seats in the database,
+ * which stays the source of truth when several instances book the same train. Cancelled and expired tickets free
+ * seats only in the database, so a counter can only be too pessimistic and is re-read before a booking is rejected.
+ * <p>
+ * A train without a seat limit is remembered for {@code tickets.seats.unlimited-ttl}, after which its limit is read
+ * again. Departures before today are dropped by {@link #evictBefore}, so the counters don't outlive their trains.
+ * <p>
+ * The seat limits are read from {@code train.seats} and the departures are locked in {@code train_departure}, both
+ * created by the V2 migration of the {@code schema} module.
+ */
+@Component
+public class SeatCapacityTracker
+{
+  private final TicketDao                               dao;
+  private final long                                    unlimitedTtlNanos;
+  private final ConcurrentMap<Departure, AtomicInteger> freeSeats = new ConcurrentHashMap<>();
+
+  @Autowired
+  public SeatCapacityTracker(TicketDao dao, @Value("${tickets.seats.unlimited-ttl:PT1M}") Duration unlimitedTtl)
+  {
+    this.dao = dao;
+    this.unlimitedTtlNanos = unlimitedTtl.toNanos();
+  }
+
+  public void reserve(Long trainId, LocalDate departureDate, int numberOfSeats)
+  {
+    Departure departure = new Departure(trainId, departureDate);
+    AtomicInteger free = freeSeats.get(departure);
+    if (free instanceof Unlimited && ((Unlimited) free).isExpired(unlimitedTtlNanos)) {
+      freeSeats.remove(departure, free);
+      free = null;
+    }
+    if (null == free) {
+      free = load(departure);
+    }
+    if (free instanceof Unlimited) {
+      return;
+    }
+
+    if (!take(free, numberOfSeats)) {
+      free.set(loadFreeSeats(departure));
+      if (!take(free, numberOfSeats)) {
+        throw new IllegalArgumentException("There are not enough free seats on this train!");
+      }
+    }
+
+    boolean reserved;
+    try {
+      reserved = dao.reserveSeats(trainId, departureDate, numberOfSeats);
+    }
+    catch (RuntimeException e) {
+      free.addAndGet(numberOfSeats);
+      throw e;
+    }
+    if (!reserved) {
+      //another instance sold the seats first
+      free.set(loadFreeSeats(departure));
+      throw new IllegalArgumentException("There are not enough free seats on this train!");
+    }
+
+    giveBackOnRollback(free, numberOfSeats);
+  }
+
+  /**
+   * Gives back seats a ticket no longer takes, e.g. when it moves to another day, once the transaction commits.
+   */
+  public void release(Long trainId, LocalDate departureDate, int numberOfSeats)
+  {
+    Departure departure = new Departure(trainId, departureDate);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      giveBack(departure, numberOfSeats);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+    {
+      @Override
+      public void afterCommit()
+      {
+        giveBack(departure, numberOfSeats);
+      }
+    });
+  }
+
+  /**
+   * Drops the counters of the departures before {@code day}, nothing can be booked on them anymore.
+   *
+   * @return the number of dropped departures
+   */
+  public int evictBefore(LocalDate day)
+  {
+    int evicted = 0;
+    for (Iterator<Departure> iterator = freeSeats.keySet().iterator(); iterator.hasNext(); ) {
+      if (iterator.next().departureDate.isBefore(day)) {
+        iterator.remove();
+        evicted++;
+      }
+    }
+    return evicted;
+  }
+
+  int size()
+  {
+    return freeSeats.size();
+  }
+
+  private void giveBack(Departure departure, int numberOfSeats)
+  {
+    AtomicInteger free = freeSeats.get(departure);
+    if (null != free && !(free instanceof Unlimited)) {
+      free.addAndGet(numberOfSeats);
+    }
+  }
+
+  private AtomicInteger load(Departure departure)
+  {
+    Integer seats = dao.loadFreeSeats(departure.trainId, departure.departureDate);
+    AtomicInteger loaded;
+    if (null == seats) {
+      loaded = new Unlimited();
+    }
+    else {
+      dao.addDeparture(departure.trainId, departure.departureDate);
+      loaded = new AtomicInteger(seats);
+    }
+
+    AtomicInteger existing = freeSeats.putIfAbsent(departure, loaded);
+    return null == existing ? loaded : existing;
+  }
+
+  private int loadFreeSeats(Departure departure)
+  {
+    Integer seats = dao.loadFreeSeats(departure.trainId, departure.departureDate);
+    return null == seats ? Integer.MAX_VALUE : seats;
+  }
+
+  private static boolean take(AtomicInteger free, int numberOfSeats)
+  {
+    while (true) {
+      int current = free.get();
+      if (current < numberOfSeats) {
+        return false;
+      }
+      if (free.compareAndSet(current, current - numberOfSeats)) {
+        return true;
+      }
+    }
+  }
+
+  private static void giveBackOnRollback(AtomicInteger free, int numberOfSeats)
+  {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+    {
+      @Override
+      public void afterCompletion(int status)
+      {
+        if (STATUS_ROLLED_BACK == status) {
+          free.addAndGet(numberOfSeats);
+        }
+      }
+    });
+  }
+
+  private static final class Unlimited extends AtomicInteger
+  {
+    private final long loadedAt = System.nanoTime();
+
+    private Unlimited()
+    {
+      super(Integer.MAX_VALUE);
+    }
+
+    private boolean isExpired(long ttlNanos)
+    {
+      return System.nanoTime() - loadedAt >= ttlNanos;
+    }
+  }
+
+  private static final class Departure
+  {
+    private final Long      trainId;
+    private final LocalDate departureDate;
+
+    private Departure(Long trainId, LocalDate departureDate)
+    {
+      this.trainId = trainId;
+      this.departureDate = departureDate;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Departure)) {
+        return false;
+      }
+      Departure departure = (Departure) o;
+      return Objects.equals(trainId, departure.trainId) && Objects.equals(departureDate, departure.departureDate);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash(trainId, departureDate);
+    }
+  }
+}
@@ -1,27 +1,80 @@
 package com.example.tickets.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+import org.springframework.security.web.context.request.async.WebAsyncManagerIntegrationFilter;
+
+import java.time.Duration;
 
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true, jsr250Enabled = true, securedEnabled = true)
 public class AppWebSecurityConfig extends WebSecurityConfigurerAdapter
 {
+  private final TokenService               tokenService;
+  private final UserDetailsService         userDetailsService;
+  private final UserDetailsPasswordService userDetailsPasswordService;
+  private final CredentialCache            credentialCache;
+  private final int                        bcryptStrength;
+  private final int                        hashingThreads;
+  private final int                        hashingQueueCapacity;
+  private final Duration                   retryAfter;
+
+  @Autowired
+  public AppWebSecurityConfig(TokenService tokenService, UserDetailsService userDetailsService,
+                              UserDetailsPasswordService userDetailsPasswordService, CredentialCache credentialCache,
+                              @Value("${tickets.bcrypt.strength:10}") int bcryptStrength,
+                              @Value("${tickets.bcrypt.threads:0}") int hashingThreads,
+                              @Value("${tickets.bcrypt.queue-capacity:100}") int hashingQueueCapacity,
+                              @Value("${tickets.bcrypt.retry-after:PT1S}") Duration retryAfter)
+  {
+    this.tokenService = tokenService;
+    this.userDetailsService = userDetailsService;
+    this.userDetailsPasswordService = userDetailsPasswordService;
+    this.credentialCache = credentialCache;
+    this.bcryptStrength = bcryptStrength;
+    this.hashingThreads = hashingThreads;
+    this.hashingQueueCapacity = hashingQueueCapacity;
+    this.retryAfter = retryAfter;
+  }
+
+  @Override
+  protected void configure(AuthenticationManagerBuilder auth)
+  {
+    DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+    provider.setUserDetailsService(userDetailsService);
+    provider.setPasswordEncoder(passwordHasher());
+    //a hash of another cost than tickets.bcrypt.strength is replaced after a successful login
+    provider.setUserDetailsPasswordService(userDetailsPasswordService);
+
+    //with tickets.auth-cache.enabled repeated HTTP Basic logins skip loadUserByUsername and BCrypt
+    auth.authenticationProvider(new CachingAuthenticationProvider(provider, credentialCache));
+  }
+
   @Override
   protected void configure(HttpSecurity http) throws Exception
   {
     http.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
     http.headers().frameOptions().disable();
 
+    //a full password hashing queue is answered with 503 instead of an error
+    http.addFilterBefore(new ServiceBusyFilter(), WebAsyncManagerIntegrationFilter.class);
+
+    //signed tokens from /login are checked without the database and BCrypt, HTTP Basic stays for the old clients
+    http.addFilterBefore(new TokenAuthenticationFilter(tokenService), BasicAuthenticationFilter.class);
+
     http.httpBasic().and()
         .authorizeRequests()
         .mvcMatchers(HttpMethod.POST,"/api/be/ticket/registration").permitAll()
@@ -30,9 +83,16 @@ public class AppWebSecurityConfig extends WebSecurityConfigurerAdapter
         .csrf().disable();
   }
 
+  //hashes on the calling thread, only for work that has its own bounded pool like the bulk registration
   @Bean
   public BCryptPasswordEncoder getEncoder()
   {
-    return new BCryptPasswordEncoder();
+    return new BCryptPasswordEncoder(bcryptStrength);
+  }
+
+  @Bean
+  public PasswordHasher passwordHasher()
+  {
+    return new PasswordHasher(getEncoder(), bcryptStrength, hashingThreads, hashingQueueCapacity, retryAfter);
   }
 }
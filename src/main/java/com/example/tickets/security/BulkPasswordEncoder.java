@@ -0,0 +1,53 @@
+package com.example.tickets.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Hashes the passwords of a bulk registration on a fork-join pool with one worker per core.
+ * <p>
+ * All bulk registrations share the pool, so together they never take more than the cores of the machine, and the
+ * common pool and the request threads stay free. It hashes outside the queue of the {@link PasswordHasher}, which is
+ * meant for single requests.
+ */
+@Component
+public class BulkPasswordEncoder
+{
+  private final BCryptPasswordEncoder passwordEncoder;
+  private final ForkJoinPool          pool;
+
+  @Autowired
+  public BulkPasswordEncoder(BCryptPasswordEncoder passwordEncoder,
+                             @Value("${tickets.registration.hash-parallelism:0}") int parallelism)
+  {
+    this.passwordEncoder = passwordEncoder;
+    this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @return the hashes in the order of the passwords
+   */
+  public List<String> encodeAll(List<String> rawPasswords)
+  {
+    //a parallel stream started inside a fork-join pool forks its tasks into that pool, not into the common pool
+    return pool
+        .submit(() -> rawPasswords
+            .parallelStream()
+            .map(passwordEncoder::encode)
+            .collect(Collectors.toList()))
+        .join();
+  }
+
+  @PreDestroy
+  public void shutdown()
+  {
+    pool.shutdownNow();
+  }
+}
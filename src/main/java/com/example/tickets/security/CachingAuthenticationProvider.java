@@ -0,0 +1,53 @@
+package com.example.tickets.security;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * Answers repeated HTTP Basic logins from the {@link CredentialCache} and hands everything else to the delegate, which
+ * loads the user and runs BCrypt.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider
+{
+  private final AuthenticationProvider delegate;
+  private final CredentialCache        credentialCache;
+
+  public CachingAuthenticationProvider(AuthenticationProvider delegate, CredentialCache credentialCache)
+  {
+    this.delegate = delegate;
+    this.credentialCache = credentialCache;
+  }
+
+  @Override
+  public Authentication authenticate(Authentication authentication) throws AuthenticationException
+  {
+    if (!credentialCache.isEnabled() || null == authentication.getCredentials()) {
+      return delegate.authenticate(authentication);
+    }
+
+    String username = authentication.getName();
+    String password = authentication.getCredentials().toString();
+
+    TicketUserDetails cached = credentialCache.lookup(username, password);
+    if (null != cached) {
+      UsernamePasswordAuthenticationToken result =
+          new UsernamePasswordAuthenticationToken(cached, null, cached.getAuthorities());
+      result.setDetails(authentication.getDetails());
+      return result;
+    }
+
+    Authentication result = delegate.authenticate(authentication);
+    if (null != result && result.getPrincipal() instanceof TicketUserDetails) {
+      credentialCache.put(username, password, (TicketUserDetails) result.getPrincipal());
+    }
+    return result;
+  }
+
+  @Override
+  public boolean supports(Class<?> authentication)
+  {
+    return delegate.supports(authentication);
+  }
+}
@@ -0,0 +1,153 @@
+package com.example.tickets.security;
+
+import com.example.tickets.bean.CacheStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opt-in cache of HTTP Basic credentials that already passed the BCrypt check.
+ * <p>
+ * Only a keyed HmacSHA256 digest of (username, password) is kept, with a key generated on startup, so the cache never
+ * holds a password and a lookup costs microseconds instead of a BCrypt round. Entries live for
+ * {@code tickets.auth-cache.ttl} and are dropped when the profile of the user changes.
+ */
+@Component
+public class CredentialCache
+{
+  private static final String ALGORITHM = "HmacSHA256";
+
+  private final boolean            enabled;
+  private final long               ttlNanos;
+  private final int                maxSize;
+  private final SecretKeySpec      key;
+  private final Map<String, Entry> entries   = new ConcurrentHashMap<>();
+  private final AtomicLong         hits      = new AtomicLong();
+  private final AtomicLong         misses    = new AtomicLong();
+  private final AtomicLong         evictions = new AtomicLong();
+
+  @Autowired
+  public CredentialCache(@Value("${tickets.auth-cache.enabled:false}") boolean enabled,
+                         @Value("${tickets.auth-cache.ttl:PT5M}") Duration ttl,
+                         @Value("${tickets.auth-cache.max-size:10000}") int maxSize)
+  {
+    this.enabled = enabled;
+    this.ttlNanos = ttl.toNanos();
+    this.maxSize = maxSize;
+
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    this.key = new SecretKeySpec(secret, ALGORITHM);
+  }
+
+  public boolean isEnabled()
+  {
+    return enabled;
+  }
+
+  /**
+   * @return the principal cached for these exact credentials or {@code null} if BCrypt has to check them
+   */
+  public TicketUserDetails lookup(String username, String password)
+  {
+    Entry entry = entries.get(username);
+    if (null != entry && entry.expiresAt - System.nanoTime() > 0
+        && MessageDigest.isEqual(entry.digest, digest(username, password))) {
+      hits.incrementAndGet();
+      return entry.principal;
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  public void put(String username, String password, TicketUserDetails principal)
+  {
+    long now = System.nanoTime();
+    if (entries.size() >= maxSize) {
+      removeExpired(now);
+      if (entries.size() >= maxSize) {
+        return;
+      }
+    }
+    // a copy without the password, the one in the principal is erased after the authentication anyway
+    TicketUserDetails cached = new TicketUserDetails(principal.getId(), principal.getUsername(), "",
+        principal.getRole(), principal.getTypeOfCard());
+    entries.put(username, new Entry(digest(username, password), cached, now + ttlNanos));
+  }
+
+  public void evictUser(Long userId)
+  {
+    entries.values().removeIf(entry -> {
+      boolean matches = userId.equals(entry.principal.getId());
+      if (matches) {
+        evictions.incrementAndGet();
+      }
+      return matches;
+    });
+  }
+
+  /**
+   * Every hit is one BCrypt verification avoided.
+   */
+  public CacheStatistics getStatistics()
+  {
+    return CacheStatistics
+        .builder()
+        .hits(hits.get())
+        .misses(misses.get())
+        .evictions(evictions.get())
+        .size(entries.size())
+        .maxSize(maxSize)
+        .build();
+  }
+
+  private void removeExpired(long now)
+  {
+    entries.values().removeIf(entry -> {
+      boolean expired = entry.expiresAt - now <= 0;
+      if (expired) {
+        evictions.incrementAndGet();
+      }
+      return expired;
+    });
+  }
+
+  private byte[] digest(String username, String password)
+  {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      mac.update(username.getBytes(StandardCharsets.UTF_8));
+      mac.update((byte) 0);
+      return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+    }
+    catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class Entry
+  {
+    private final byte[]            digest;
+    private final TicketUserDetails principal;
+    private final long              expiresAt;
+
+    private Entry(byte[] digest, TicketUserDetails principal, long expiresAt)
+    {
+      this.digest = digest;
+      this.principal = principal;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
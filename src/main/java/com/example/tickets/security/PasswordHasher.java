@@ -0,0 +1,114 @@
+package com.example.tickets.security;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs every BCrypt hash and check of the registration and the login on a fixed pool of {@code tickets.bcrypt.threads}
+ * with at most {@code tickets.bcrypt.queue-capacity} waiting, so a burst of them can't take the request threads and
+ * the cores the other endpoints need.
+ * <p>
+ * When the queue is full the caller gets a {@link ServiceBusyException} at once instead of waiting. A stored hash with
+ * another cost than {@code tickets.bcrypt.strength} is reported for upgrade and rehashed at the next login.
+ */
+@Log4j2
+public class PasswordHasher implements PasswordEncoder
+{
+  private static final Pattern BCRYPT_COST = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$");
+
+  private final PasswordEncoder    delegate;
+  private final int                strength;
+  private final Duration           retryAfter;
+  private final ThreadPoolExecutor executor;
+
+  public PasswordHasher(PasswordEncoder delegate, int strength, int threads, int queueCapacity, Duration retryAfter)
+  {
+    this.delegate = delegate;
+    this.strength = strength;
+    this.retryAfter = retryAfter;
+
+    int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    AtomicInteger counter = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+      Thread thread = new Thread(runnable, "password-hasher-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword)
+  {
+    return run(() -> delegate.encode(rawPassword));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword)
+  {
+    return run(() -> delegate.matches(rawPassword, encodedPassword));
+  }
+
+  //lower costs are upgraded and higher ones downgraded, the configured cost is what every login pays
+  @Override
+  public boolean upgradeEncoding(String encodedPassword)
+  {
+    if (null == encodedPassword) {
+      return false;
+    }
+    Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+    return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+  }
+
+  public void shutdown()
+  {
+    executor.shutdownNow();
+  }
+
+  int queued()
+  {
+    return executor.getQueue().size();
+  }
+
+  private <T> T run(Callable<T> hash)
+  {
+    Future<T> future;
+    try {
+      future = executor.submit(hash);
+    }
+    catch (RejectedExecutionException e) {
+      log.warn("Password hashing queue is full, the request is refused");
+      throw new ServiceBusyException("The server is busy, please try again later!", retryAfter);
+    }
+
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while hashing the password", e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+}
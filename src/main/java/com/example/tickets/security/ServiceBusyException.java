@@ -0,0 +1,21 @@
+package com.example.tickets.security;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * The work was refused because its queue is full. Answered with 503 and {@code Retry-After} by the
+ * {@link ServiceBusyFilter}.
+ */
+@Getter
+public class ServiceBusyException extends RuntimeException
+{
+  private final Duration retryAfter;
+
+  public ServiceBusyException(String message, Duration retryAfter)
+  {
+    super(message);
+    this.retryAfter = retryAfter;
+  }
+}
@@ -0,0 +1,51 @@
+package com.example.tickets.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Answers a {@link ServiceBusyException} with 503 and {@code Retry-After}, whether it comes from the authentication
+ * filters or from a controller.
+ */
+public class ServiceBusyFilter extends OncePerRequestFilter
+{
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException
+  {
+    try {
+      chain.doFilter(request, response);
+    }
+    catch (ServletException | RuntimeException e) {
+      ServiceBusyException busy = findServiceBusy(e);
+      if (null == busy || response.isCommitted()) {
+        throw e;
+      }
+      response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+      response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, busy.getRetryAfter().getSeconds())));
+      response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+      response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+      response.getWriter().write(busy.getMessage());
+    }
+  }
+
+  //controllers' exceptions arrive wrapped in a NestedServletException
+  private static ServiceBusyException findServiceBusy(Throwable e)
+  {
+    for (Throwable cause = e; null != cause; cause = cause.getCause()) {
+      if (cause instanceof ServiceBusyException) {
+        return (ServiceBusyException) cause;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,46 @@
+package com.example.tickets.security;
+
+import com.example.tickets.bean.UserRegistrationDetail;
+import com.example.tickets.enums.CardType;
+import com.example.tickets.enums.Role;
+import lombok.Getter;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collections;
+
+/**
+ * Principal of an authenticated user. It keeps the id, the role and the card type read while authenticating, so the
+ * business calls don't have to load the user again.
+ */
+@Getter
+public class TicketUserDetails extends User
+{
+  private final Long     id;
+  private final Role     role;
+  private final CardType typeOfCard;
+
+  public TicketUserDetails(UserRegistrationDetail user)
+  {
+    this(user.getId(), user.getUsername(), user.getPassword(), user.getRole(), user.getTypeOfCard());
+  }
+
+  public TicketUserDetails(Long id, String username, String password, Role role, CardType typeOfCard)
+  {
+    super(username, password, Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role.name())));
+    this.id = id;
+    this.role = role;
+    this.typeOfCard = typeOfCard;
+  }
+
+  public UserRegistrationDetail toUserRegistrationDetail()
+  {
+    return UserRegistrationDetail
+        .builder()
+        .id(id)
+        .username(getUsername())
+        .role(role)
+        .typeOfCard(typeOfCard)
+        .build();
+  }
+}
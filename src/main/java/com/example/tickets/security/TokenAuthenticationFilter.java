@@ -0,0 +1,47 @@
+package com.example.tickets.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Authenticates requests carrying {@code Authorization: Bearer <token>} from the token alone. Requests without a
+ * bearer token are left to HTTP Basic.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter
+{
+  private static final String PREFIX = "Bearer ";
+
+  private final TokenService tokenService;
+
+  public TokenAuthenticationFilter(TokenService tokenService)
+  {
+    this.tokenService = tokenService;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException
+  {
+    String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+    if (null != header && header.regionMatches(true, 0, PREFIX, 0, PREFIX.length())) {
+      TicketUserDetails user = tokenService.verify(header.substring(PREFIX.length()).trim());
+      if (null != user) {
+        //not a UsernamePasswordAuthenticationToken, a token must not be able to renew itself at /login
+        PreAuthenticatedAuthenticationToken authentication =
+            new PreAuthenticatedAuthenticationToken(user, null, user.getAuthorities());
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+      }
+    }
+    chain.doFilter(request, response);
+  }
+}
@@ -0,0 +1,36 @@
+package com.example.tickets.security;
+
+import com.example.tickets.bean.LoginToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/be/ticket")
+public class TokenController
+{
+  private final TokenService tokenService;
+
+  @Autowired
+  public TokenController(TokenService tokenService)
+  {
+    this.tokenService = tokenService;
+  }
+
+  //login with HTTP Basic once and use the token in "Authorization: Bearer ..." for the next requests
+  //only a password login issues a token, otherwise a stolen token could renew itself forever
+  @PostMapping("/login")
+  public ResponseEntity<LoginToken> login(Authentication authentication)
+  {
+    if (!(authentication instanceof UsernamePasswordAuthenticationToken) ||
+        !(authentication.getPrincipal() instanceof TicketUserDetails)) {
+      return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    }
+    return ResponseEntity.ok(tokenService.issue((TicketUserDetails) authentication.getPrincipal()));
+  }
+}
@@ -0,0 +1,146 @@
+package com.example.tickets.security;
+
+import com.example.tickets.bean.LoginToken;
+import com.example.tickets.enums.CardType;
+import com.example.tickets.enums.Role;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Issues and verifies the signed tokens used instead of HTTP Basic.
+ * <p>
+ * A token is {@code base64url(claims).base64url(HmacSHA256(claims))}, where the claims carry the user id, username,
+ * role, card type and expiry. Verifying one needs neither the database nor BCrypt.
+ */
+@Log4j2
+@Component
+public class TokenService
+{
+  private static final String ALGORITHM  = "HmacSHA256";
+  private static final String TOKEN_TYPE = "Bearer";
+
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  private final SecretKeySpec key;
+  private final Duration      ttl;
+  private final ObjectMapper  objectMapper;
+  private final Clock         clock;
+
+  @Autowired
+  public TokenService(@Value("${tickets.token.secret:}") String secret,
+                      @Value("${tickets.token.ttl:PT1H}") Duration ttl,
+                      ObjectMapper objectMapper)
+  {
+    this(secret, ttl, objectMapper, Clock.systemUTC());
+  }
+
+  TokenService(String secret, Duration ttl, ObjectMapper objectMapper, Clock clock)
+  {
+    byte[] secretBytes;
+    if (null == secret || secret.isEmpty()) {
+      log.warn("tickets.token.secret is not set, the issued tokens are valid only until the next restart");
+      secretBytes = new byte[32];
+      new SecureRandom().nextBytes(secretBytes);
+    }
+    else {
+      secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+    }
+    this.key = new SecretKeySpec(secretBytes, ALGORITHM);
+    this.ttl = ttl;
+    this.objectMapper = objectMapper;
+    this.clock = clock;
+  }
+
+  public LoginToken issue(TicketUserDetails user)
+  {
+    Instant expiresAt = clock.instant().plus(ttl);
+
+    Map<String, Object> claims = new LinkedHashMap<>();
+    claims.put("uid", user.getId());
+    claims.put("sub", user.getUsername());
+    claims.put("role", user.getRole().name());
+    claims.put("card", user.getTypeOfCard().name());
+    claims.put("exp", expiresAt.getEpochSecond());
+
+    String payload;
+    try {
+      payload = ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+    }
+    catch (Exception e) {
+      throw new IllegalStateException("Can not write the token claims!", e);
+    }
+
+    return LoginToken
+        .builder()
+        .token(payload + "." + ENCODER.encodeToString(sign(payload)))
+        .tokenType(TOKEN_TYPE)
+        .expiresAt(expiresAt)
+        .build();
+  }
+
+  /**
+   * @return the principal of the token or {@code null} if the token is malformed, forged or expired
+   */
+  public TicketUserDetails verify(String token)
+  {
+    int dot = token.indexOf('.');
+    if (dot <= 0 || dot != token.lastIndexOf('.')) {
+      return null;
+    }
+
+    try {
+      String payload = token.substring(0, dot);
+      byte[] signature = DECODER.decode(token.substring(dot + 1));
+      if (!MessageDigest.isEqual(sign(payload), signature)) {
+        return null;
+      }
+
+      Map<String, Object> claims = objectMapper.readValue(DECODER.decode(payload),
+          new TypeReference<Map<String, Object>>()
+          {
+          });
+      if (clock.instant().getEpochSecond() >= ((Number) claims.get("exp")).longValue()) {
+        return null;
+      }
+
+      return new TicketUserDetails(((Number) claims.get("uid")).longValue(),
+          (String) claims.get("sub"),
+          "",
+          Role.valueOf((String) claims.get("role")),
+          CardType.valueOf((String) claims.get("card")));
+    }
+    catch (Exception e) {
+      return null;
+    }
+  }
+
+  private byte[] sign(String payload)
+  {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+    }
+    catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
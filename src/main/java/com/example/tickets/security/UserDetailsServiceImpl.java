@@ -3,16 +3,14 @@ package com.example.tickets.security;
 import com.example.tickets.TicketDao;
 import com.example.tickets.bean.UserRegistrationDetail;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService
 {
   @Autowired
   private TicketDao ticketDao;
@@ -22,13 +20,18 @@ public class UserDetailsServiceImpl implements UserDetailsService
   {
     UserRegistrationDetail user = ticketDao.findByUsername(username)
         .orElseThrow(() -> new IllegalArgumentException("No such user found!"));
-    ;
 
+    return new TicketUserDetails(user);
+  }
+
+  //called after a login whose stored hash has another cost than tickets.bcrypt.strength
+  @Override
+  public UserDetails updatePassword(UserDetails user, String newPassword)
+  {
+    ticketDao.updatePassword(user.getUsername(), newPassword);
 
-    return org.springframework.security.core.userdetails.User
-        .withUsername(user.getUsername())
-        .password(user.getPassword())
-        .roles(user.getRole().name())
-        .build();
+    TicketUserDetails details = (TicketUserDetails) user;
+    return new TicketUserDetails(details.getId(), details.getUsername(), newPassword, details.getRole(),
+        details.getTypeOfCard());
   }
 }
@@ -0,0 +1,30 @@
+package com.example.tickets;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.containers.MySQLContainer;
+
+/**
+ * One MySQL server in Docker for all tests tagged {@code mysql}, started by the first of them and stopped with the JVM.
+ * The application applies the migrations of the {@code schema} module to it on startup, like to a real database.
+ */
+final class MySqlDatabase
+{
+  private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+  private MySqlDatabase()
+  {
+  }
+
+  static void register(DynamicPropertyRegistry registry)
+  {
+    synchronized (MYSQL) {
+      if (!MYSQL.isRunning()) {
+        MYSQL.start();
+      }
+    }
+    registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+    registry.add("spring.datasource.username", MYSQL::getUsername);
+    registry.add("spring.datasource.password", MYSQL::getPassword);
+    registry.add("spring.datasource.driver-class-name", MYSQL::getDriverClassName);
+  }
+}
@@ -0,0 +1,161 @@
+package com.example.tickets;
+
+import com.example.tickets.bean.ReservationCursor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs EXPLAIN on the statements of every {@link TicketDao} lookup and fails if a table is read with type ALL, or with
+ * a full index scan without any usable index. The full listings (loadAvailableDestinations, loadTrains, loadUsers, the
+ * streams and the export) read whole tables on purpose and are not checked.
+ * <p>
+ * The plan columns exist only in the EXPLAIN output of MySQL, so it runs against {@link MySqlDatabase}. Not part of
+ * {@code gradle test}, run it with {@code gradle mysqlTest}, it needs Docker.
+ */
+@Tag("mysql")
+@Transactional
+@SpringBootTest
+class QueryPlanTest
+{
+  @Autowired
+  private TicketDao         ticketDao;
+  @Autowired
+  private RecordingTemplate recordingTemplate;
+  @Autowired
+  private DataSource        dataSource;
+
+  @java.lang.SuppressWarnings("all")
+  private static final org.apache.logging.log4j.Logger log = org.apache.logging.log4j.LogManager.getLogger(QueryPlanTest.class);
+
+  @DynamicPropertySource
+  static void mysql(DynamicPropertyRegistry registry)
+  {
+    MySqlDatabase.register(registry);
+  }
+
+  @Test
+  void everyLookupUsesAnIndex()
+  {
+    LocalDateTime now = LocalDateTime.now();
+    Map<String, Runnable> lookups = new LinkedHashMap<>();
+    lookups.put("loadFreeSeats", () -> ticketDao.loadFreeSeats(1L, LocalDate.now()));
+    lookups.put("reserveSeats", () -> ticketDao.reserveSeats(1L, LocalDate.now(), 1));
+    lookups.put("loadAllReservationsOfUser", () -> ticketDao.loadAllReservationsOfUser(1L, now));
+    lookups.put("loadReservationsPage", () -> ticketDao.loadReservationsPage(1L, now,
+        new ReservationCursor(now, 1L), 50));
+    lookups.put("payTicket", () -> ticketDao.payTicket(1L));
+    lookups.put("findTicketsOfUser", () -> ticketDao.findTicketsOfUser(1L, List.of(1L, 2L)));
+    lookups.put("payTickets", () -> ticketDao.payTickets(1L, List.of(1L, 2L)));
+    lookups.put("refactorReservation", () -> ticketDao.refactorReservation(1L, "1", "1", "1", "1"));
+    lookups.put("removeExpiredReservations", () -> ticketDao.removeExpiredReservations(now, 500));
+    lookups.put("removeExpiredHolds", () -> ticketDao.removeExpiredHolds(List.of(1L, 2L), now));
+    lookups.put("loadUnpaidHolds", () -> ticketDao.loadUnpaidHolds((ticketId, dateAfterSevenDays) -> { }));
+    lookups.put("getTypeOfPayReservation", () -> ticketDao.getTypeOfPayReservation(1L));
+    lookups.put("removeTicketReservation", () -> ticketDao.removeTicketReservation(1L));
+    lookups.put("getUser", () -> ticketDao.getUser(1L));
+    lookups.put("refactorUserProfile", () -> ticketDao.refactorUserProfile(1L, "ivan1@gmail.com"));
+    lookups.put("findByUsername", () -> ticketDao.findByUsername("ivan76"));
+    lookups.put("loadUsersPage", () -> ticketDao.loadUsersPage(0L, 100));
+
+    NamedParameterJdbcTemplate explainTemplate = new NamedParameterJdbcTemplate(dataSource);
+    List<String> fullScans = new ArrayList<>();
+    lookups.forEach((method, lookup) -> {
+      List<Statement> statements = recordingTemplate.record(lookup);
+      for (Statement statement : statements) {
+        explainTemplate.query("EXPLAIN " + statement.sql, statement.parameters, (rs, rowNum) -> {
+          String type = rs.getString("type");
+          if ("ALL".equals(type) || ("index".equals(type) && null == rs.getString("possible_keys"))) {
+            fullScans.add(method + " scans " + rs.getString("table"));
+          }
+          return type;
+        });
+      }
+    });
+
+    assertTrue(fullScans.isEmpty(), () -> "Full table scans: " + fullScans);
+    log.info("TEST - OK");
+  }
+
+  private static final class Statement
+  {
+    private final String             sql;
+    private final SqlParameterSource parameters;
+
+    private Statement(String sql, SqlParameterSource parameters)
+    {
+      this.sql = sql;
+      this.parameters = parameters;
+    }
+  }
+
+  /**
+   * Replaces the application template and keeps the statements of {@link #record}.
+   */
+  static class RecordingTemplate extends NamedParameterJdbcTemplate
+  {
+    private List<Statement> statements;
+
+    RecordingTemplate(DataSource dataSource)
+    {
+      super(dataSource);
+    }
+
+    List<Statement> record(Runnable lookup)
+    {
+      statements = new ArrayList<>();
+      try {
+        lookup.run();
+        return statements;
+      }
+      finally {
+        statements = null;
+      }
+    }
+
+    @Override
+    protected PreparedStatementCreator getPreparedStatementCreator(String sql, SqlParameterSource paramSource,
+                                                                   Consumer<PreparedStatementCreatorFactory> customizer)
+    {
+      String statement = sql.trim().toUpperCase(Locale.ROOT);
+      if (null != statements && !statement.startsWith("INSERT")) {
+        statements.add(new Statement(sql, paramSource));
+      }
+      return super.getPreparedStatementCreator(sql, paramSource, customizer);
+    }
+  }
+
+  @TestConfiguration
+  static class RecordingConfiguration
+  {
+    @Bean
+    @Primary
+    RecordingTemplate recordingTemplate(DataSource dataSource)
+    {
+      return new RecordingTemplate(dataSource);
+    }
+  }
+}
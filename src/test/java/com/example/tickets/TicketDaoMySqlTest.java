@@ -0,0 +1,20 @@
+package com.example.tickets;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Runs the {@link TicketDaoTest} statements against MySQL, the MySQL only SQL (INSERT IGNORE, DELETE ... LIMIT, the
+ * UPDATE ... JOIN of the V3 migration) can't run on H2. Not part of {@code gradle test}, run it with
+ * {@code gradle mysqlTest}, it needs Docker.
+ */
+@Tag("mysql")
+class TicketDaoMySqlTest extends TicketDaoTest
+{
+  @DynamicPropertySource
+  static void mysql(DynamicPropertyRegistry registry)
+  {
+    MySqlDatabase.register(registry);
+  }
+}
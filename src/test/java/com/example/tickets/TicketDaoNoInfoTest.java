@@ -0,0 +1,116 @@
+package com.example.tickets;
+
+import com.example.tickets.bean.DestinationInfo;
+import com.example.tickets.bean.UserRegistrationDetail;
+import com.example.tickets.enums.CardType;
+import com.example.tickets.enums.Role;
+import com.example.tickets.jdbc.QueryMetrics;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+/**
+ * The batches of {@link TicketDao} with a driver that answers {@link Statement#SUCCESS_NO_INFO} for every row.
+ */
+class TicketDaoNoInfoTest
+{
+  /**
+   * Link to the Dao {@link TicketDao#upsertDestinations}
+   */
+  @Test
+  void upsertDestinations_LooksUpTheRoutes_IfTheDriverDoesntCountTheRows() throws Exception
+  {
+    NamedParameterJdbcTemplate template = template();
+    when(template.batchUpdate(contains("UPDATE train"), any(SqlParameterSource[].class)))
+        .thenReturn(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO});
+    ResultSet existing = mock(ResultSet.class);
+    when(existing.getString("town1")).thenReturn("SOFIA");
+    when(existing.getString("town2")).thenReturn("Varna");
+    doAnswer(invocation -> {
+      invocation.<RowCallbackHandler>getArgument(2).processRow(existing);
+      return null;
+    }).when(template).query(contains("FROM train"), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+
+    TicketDao dao = new TicketDao(template, new QueryMetrics(Duration.ofSeconds(1)));
+    int inserted = dao.upsertDestinations(List.of(route("Sofia", "Varna"), route("Sofia", "Burgas")));
+
+    assertEquals(1, inserted);
+    ArgumentCaptor<SqlParameterSource[]> insert = ArgumentCaptor.forClass(SqlParameterSource[].class);
+    verify(template).batchUpdate(contains("INSERT INTO train"), insert.capture());
+    assertEquals(1, insert.getValue().length);
+    assertEquals("Burgas", insert.getValue()[0].getValue("town2"));
+  }
+
+  /**
+   * Link to the Dao {@link TicketDao#batchRegistration}
+   */
+  @Test
+  void batchRegistration_ComparesTheHashes_IfTheDriverDoesntCountTheRows() throws Exception
+  {
+    NamedParameterJdbcTemplate template = template();
+    when(template.batchUpdate(contains("INSERT IGNORE INTO users"), any(SqlParameterSource[].class)))
+        .thenReturn(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO});
+    //ivan was inserted by this batch, maria by another request in the meantime
+    ResultSet stored = mock(ResultSet.class);
+    when(stored.getString("username")).thenReturn("Ivan", "maria");
+    when(stored.getString("password")).thenReturn("hash-ivan", "hash-of-another-request");
+    doAnswer(invocation -> {
+      RowCallbackHandler handler = invocation.getArgument(2);
+      handler.processRow(stored);
+      handler.processRow(stored);
+      return null;
+    }).when(template).query(contains("FROM users"), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+
+    TicketDao dao = new TicketDao(template, new QueryMetrics(Duration.ofSeconds(1)));
+    boolean[] inserted = dao.batchRegistration(List.of(user("ivan"), user("maria")));
+
+    assertTrue(inserted[0]);
+    assertFalse(inserted[1]);
+  }
+
+  private static NamedParameterJdbcTemplate template()
+  {
+    NamedParameterJdbcTemplate template = mock(NamedParameterJdbcTemplate.class);
+    when(template.getJdbcTemplate()).thenReturn(new JdbcTemplate(mock(DataSource.class)));
+    return template;
+  }
+
+  private static UserRegistrationDetail user(String username)
+  {
+    return UserRegistrationDetail
+        .builder()
+        .username(username)
+        .password("hash-" + username)
+        .role(Role.USER)
+        .typeOfCard(CardType.NONE)
+        .build();
+  }
+
+  private static DestinationInfo route(String town1, String town2)
+  {
+    return DestinationInfo
+        .builder()
+        .town1(town1)
+        .town2(town2)
+        .distance(380L)
+        .initialPrice(new BigDecimal("25.50"))
+        .build();
+  }
+}
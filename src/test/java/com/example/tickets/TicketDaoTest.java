@@ -1,5 +1,7 @@
 package com.example.tickets;
 
+import com.example.tickets.bean.DestinationInfo;
+import com.example.tickets.bean.ReservationCursor;
 import com.example.tickets.bean.UserRegistrationDetail;
 import com.example.tickets.enums.CardType;
 import com.example.tickets.enums.Role;
@@ -9,8 +11,10 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -53,42 +57,72 @@ class TicketDaoTest
   }
 
   /**
-   * Link to the Dao {@link TicketDao#loadAvailableDestinations}
+   * Link to the Dao {@link TicketDao#batchRegistration}
    */
   @Test
-  void loadAvailableDestinations()
+  void batchRegistration()
   {
-    assertDoesNotThrow(() -> ticketDao.loadAvailableDestinations());
+    UserRegistrationDetail user = UserRegistrationDetail
+        .builder()
+        .username("BulkTest")
+        .typeOfCard(CardType.NONE)
+        .role(Role.USER)
+        .password("Pass!123")
+        .email("bulk@abv.bg")
+        .build();
+
+    boolean[] inserted = ticketDao.batchRegistration(List.of(user, user));
+    assertTrue(inserted[0]);
+    //the unique username index skips the second one
+    assertFalse(inserted[1]);
     log.info("TEST - OK");
   }
 
   /**
-   * Link to the Dao {@link TicketDao#getPriceOfTicket}
+   * Link to the Dao {@link TicketDao#findExistingUsernames}
    */
   @Test
-  void getPriceOfTicket_withEmpty_townTo()
+  void findExistingUsernames()
   {
-    assertDoesNotThrow(() -> ticketDao.getPriceOfTicket("Sofia", ""));
+    assertDoesNotThrow(() -> ticketDao.findExistingUsernames(List.of("Test", "NoSuchUser")));
     log.info("TEST - OK");
   }
 
   /**
-   * Link to the Dao {@link TicketDao#getPriceOfTicket}
+   * Link to the Dao {@link TicketDao#updatePassword}
    */
   @Test
-  void getPriceOfTicket()
+  void updatePassword()
+  {
+    assertDoesNotThrow(() -> ticketDao.updatePassword("Test", "$2a$10$abcdefghijklmnopqrstuu"));
+    log.info("TEST - OK");
+  }
+
+  /**
+   * Link to the Dao {@link TicketDao#loadAvailableDestinations}
+   */
+  @Test
+  void loadAvailableDestinations()
   {
-    assertDoesNotThrow(() -> ticketDao.getPriceOfTicket("Sofia", "Varna"));
+    assertDoesNotThrow(() -> ticketDao.loadAvailableDestinations());
     log.info("TEST - OK");
   }
 
   /**
-   * Link to the Dao {@link TicketDao#getPriceOfTicket}
+   * Link to the Dao {@link TicketDao#upsertDestinations}
    */
   @Test
-  void getPriceOfTicket_with_EmptyResult()
+  void upsertDestinations()
   {
-    assertDoesNotThrow(() -> ticketDao.getPriceOfTicket("", ""));
+    DestinationInfo route = DestinationInfo
+        .builder()
+        .town1("Import test 1")
+        .town2("Import test 2")
+        .distance(380L)
+        .initialPrice(new BigDecimal("25.50"))
+        .build();
+    assertEquals(1, ticketDao.upsertDestinations(List.of(route)));
+    assertEquals(0, ticketDao.upsertDestinations(List.of(route)));
     log.info("TEST - OK");
   }
 
@@ -104,6 +138,47 @@ class TicketDaoTest
     log.info("TEST - OK");
   }
 
+  /**
+   * Link to the Dao {@link TicketDao#batchReservation}
+   */
+  @Test
+  void batchReservation()
+  {
+    assertEquals(3, ticketDao.batchReservation(1L, LocalDateTime.now(),
+        LocalDateTime.parse("2023-06-22T17:38"), BigDecimal.valueOf(50), 1L, 3).size());
+    log.info("TEST - OK");
+  }
+
+  /**
+   * Link to the Dao {@link TicketDao#loadFreeSeats}
+   */
+  @Test
+  void loadFreeSeats()
+  {
+    assertDoesNotThrow(() -> ticketDao.loadFreeSeats(1L, LocalDate.now()));
+    log.info("TEST - OK");
+  }
+
+  /**
+   * Link to the Dao {@link TicketDao#addDeparture}
+   */
+  @Test
+  void addDeparture()
+  {
+    assertDoesNotThrow(() -> ticketDao.addDeparture(1L, LocalDate.now()));
+    log.info("TEST - OK");
+  }
+
+  /**
+   * Link to the Dao {@link TicketDao#reserveSeats}
+   */
+  @Test
+  void reserveSeats()
+  {
+    assertDoesNotThrow(() -> ticketDao.reserveSeats(1L, LocalDate.now(), 2));
+    log.info("TEST - OK");
+  }
+
   /**
    * Link to the Dao {@link TicketDao#payTicket}
    */
@@ -114,6 +189,26 @@ class TicketDaoTest
     log.info("TEST - OK");
   }
 
+  /**
+   * Link to the Dao {@link TicketDao#findTicketsOfUser}
+   */
+  @Test
+  void findTicketsOfUser()
+  {
+    assertDoesNotThrow(() -> ticketDao.findTicketsOfUser(1L, List.of(1L, 2L)));
+    log.info("TEST - OK");
+  }
+
+  /**
+   * Link to the Dao {@link TicketDao#payTickets}
+   */
+  @Test
+  void payTickets()
+  {
+    assertDoesNotThrow(() -> ticketDao.payTickets(1L, List.of(1L, 2L)));
+    log.info("TEST - OK");
+  }
+
   /**
    * Link to the Dao {@link TicketDao#refactorReservation}
    */
@@ -135,12 +230,35 @@ class TicketDaoTest
   }
 
   /**
-   * Link to the Dao {@link TicketDao#removeOldTicket}
+   * Link to the Dao {@link TicketDao#removeExpiredReservations}
+   */
+  @Test
+  void removeExpiredReservations()
+  {
+    assertDoesNotThrow(() -> ticketDao.removeExpiredReservations(LocalDateTime.now(), 500));
+    log.info("TEST - OK");
+  }
+
+  /**
+   * Link to the Dao {@link TicketDao#removeExpiredHolds}
    */
   @Test
-  void removeOldTicket()
+  void removeExpiredHolds()
   {
-    assertDoesNotThrow(() -> ticketDao.removeOldTicket(1L));
+    List<Long> ticketIds = new ArrayList<>();
+    ticketIds.add(1L);
+    ticketIds.add(2L);
+    assertDoesNotThrow(() -> ticketDao.removeExpiredHolds(ticketIds, LocalDateTime.now()));
+    log.info("TEST - OK");
+  }
+
+  /**
+   * Link to the Dao {@link TicketDao#loadUnpaidHolds}
+   */
+  @Test
+  void loadUnpaidHolds()
+  {
+    assertDoesNotThrow(() -> ticketDao.loadUnpaidHolds((ticketId, dateAfterSevenDays) -> { }));
     log.info("TEST - OK");
   }
 
@@ -185,72 +303,106 @@ class TicketDaoTest
   }
 
   /**
-   * Link to the Dao {@link TicketDao#getUser}
+   * Link to the Dao {@link TicketDao#loadUsersPage}
    */
   @Test
-  void getUser()
+  void loadUsersPage()
   {
-    assertDoesNotThrow(() -> ticketDao.getUser(1L));
+    assertDoesNotThrow(() -> ticketDao.loadUsersPage(0L, 100));
     log.info("TEST - OK");
   }
 
   /**
-   * Link to the Dao {@link TicketDao#getUser}
+   * Link to the Dao {@link TicketDao#streamUsers}
    */
   @Test
-  void getUser_With_EmptyResult()
+  void streamUsers()
   {
-    assertDoesNotThrow(() -> ticketDao.getUser(null));
+    assertDoesNotThrow(() -> ticketDao.streamUsers(user -> { }));
     log.info("TEST - OK");
   }
 
   /**
-   * Link to the Dao {@link TicketDao#refactorUserProfile}
+   * Link to the Dao {@link TicketDao#exportTickets}
    */
   @Test
-  void refactorUserProfile()
+  void exportTickets()
   {
-    assertDoesNotThrow(() -> ticketDao.refactorUserProfile(1L, "testmain@abv.bg"));
+    assertDoesNotThrow(() -> ticketDao.exportTickets(null, null, null, ticket -> { }));
     log.info("TEST - OK");
   }
 
   /**
-   * Link to the Dao {@link TicketDao#findByUsername}
+   * Link to the Dao {@link TicketDao#exportTickets}
    */
   @Test
-  void findByUsername()
+  void exportTickets_WithFilters()
   {
-    assertDoesNotThrow(() -> ticketDao.findByUsername("test"));
+    assertDoesNotThrow(() -> ticketDao.exportTickets(LocalDate.parse("2023-01-01"), LocalDate.parse("2023-12-31"),
+        true, ticket -> { }));
+    log.info("TEST - OK");
+  }
+
+  /**
+   * Link to the Dao {@link TicketDao#loadReservationsPage}
+   */
+  @Test
+  void loadReservationsPage()
+  {
+    assertDoesNotThrow(() -> ticketDao.loadReservationsPage(1L, LocalDateTime.now(), null, 50));
+    log.info("TEST - OK");
+  }
+
+  /**
+   * Link to the Dao {@link TicketDao#loadReservationsPage}
+   */
+  @Test
+  void loadReservationsPage_AfterCursor()
+  {
+    assertDoesNotThrow(() -> ticketDao.loadReservationsPage(1L, LocalDateTime.now(),
+        new ReservationCursor(LocalDateTime.parse("2023-04-07T10:00"), 15L), 50));
+    log.info("TEST - OK");
+  }
+
+  /**
+   * Link to the Dao {@link TicketDao#getUser}
+   */
+  @Test
+  void getUser()
+  {
+    assertDoesNotThrow(() -> ticketDao.getUser(1L));
     log.info("TEST - OK");
   }
 
   /**
-   * Link to the Dao {@link TicketDao#loadTowns}
+   * Link to the Dao {@link TicketDao#getUser}
    */
   @Test
-  void loadTowns_With_Empty_Town2()
+  void getUser_With_EmptyResult()
   {
-    assertDoesNotThrow(() -> ticketDao.loadTowns("Sofia", ""));
+    assertDoesNotThrow(() -> ticketDao.getUser(null));
     log.info("TEST - OK");
   }
 
   /**
-   * Link to the Dao {@link TicketDao#loadTowns}
+   * Link to the Dao {@link TicketDao#refactorUserProfile}
    */
   @Test
-  void loadTowns()
+  void refactorUserProfile()
   {
-    assertDoesNotThrow(() -> ticketDao.loadTowns("Sofia", "Varna"));
+    assertDoesNotThrow(() -> ticketDao.refactorUserProfile(1L, "testmain@abv.bg"));
     log.info("TEST - OK");
   }
 
   /**
-   * Link to the Dao {@link TicketDao#loadTowns}
+   * Link to the Dao {@link TicketDao#findByUsername}
    */
   @Test
-  void loadTowns_With_EmptyResult()
+  void findByUsername()
   {
-    assertDoesNotThrow(() -> ticketDao.loadTowns("", ""));
+    assertDoesNotThrow(() -> ticketDao.findByUsername("test"));
     log.info("TEST - OK");
   }
+
+
 }
\ No newline at end of file
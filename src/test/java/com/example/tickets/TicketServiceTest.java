@@ -1,32 +1,77 @@
 package com.example.tickets;
 
-import com.example.tickets.bean.Date;
+import com.example.tickets.bean.CacheStatistics;
 import com.example.tickets.bean.DestinationInfo;
+import com.example.tickets.bean.ImportResult;
+import com.example.tickets.bean.Page;
+import com.example.tickets.bean.PaymentResult;
+import com.example.tickets.bean.PriceRequest;
 import com.example.tickets.bean.Registration;
+import com.example.tickets.bean.RegistrationResult;
+import com.example.tickets.bean.ReservationMove;
+import com.example.tickets.bean.Route;
+import com.example.tickets.bean.Ticket;
+import com.example.tickets.bean.Train;
+import com.example.tickets.bean.UserInformation;
 import com.example.tickets.bean.UserRegistrationDetail;
 import com.example.tickets.enums.CardType;
+import com.example.tickets.enums.DestinationFormat;
+import com.example.tickets.enums.PaymentStatus;
+import com.example.tickets.enums.RegistrationStatus;
 import com.example.tickets.enums.Role;
+import com.example.tickets.enums.RouteCriteria;
 import com.example.tickets.enums.Travel;
+import com.example.tickets.jdbc.QueryMetrics;
+import com.example.tickets.jdbc.RoutingDataSource;
+import com.example.tickets.network.DestinationImporter;
+import com.example.tickets.network.FareMatrix;
+import com.example.tickets.network.RouteFinder;
+import com.example.tickets.network.TownIndex;
+import com.example.tickets.pricing.DiscountEngine;
+import com.example.tickets.pricing.QuoteCache;
+import com.example.tickets.reservation.ExpiredReservationSweeper;
+import com.example.tickets.reservation.ReservationHolds;
+import com.example.tickets.reservation.SeatCapacityTracker;
+import com.example.tickets.security.BulkPasswordEncoder;
+import com.example.tickets.security.CredentialCache;
+import com.example.tickets.security.PasswordHasher;
+import com.example.tickets.security.TicketUserDetails;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.StringReader;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 class TicketServiceTest
@@ -41,7 +86,9 @@ class TicketServiceTest
   @Mock
   private BCryptPasswordEncoder passwordEncoder;
 
-  private TicketService ticketService;
+  private TicketService    ticketService;
+  private CredentialCache  credentialCache;
+  private ReservationHolds reservationHolds;
 
   private UserRegistrationDetail testUser1;
   private UserRegistrationDetail testUser2;
@@ -83,7 +130,17 @@ class TicketServiceTest
   {
 //    initialize mocks before each method
     MockitoAnnotations.openMocks(this);
-    ticketService = new TicketService(ticketDao, passwordEncoder);
+    FareMatrix fareMatrix = new FareMatrix(ticketDao, event -> { });
+    credentialCache = new CredentialCache(true, Duration.ofMinutes(5), 100);
+    reservationHolds = new ReservationHolds(ticketDao, Duration.ofSeconds(1), 500);
+    SeatCapacityTracker seatCapacityTracker = new SeatCapacityTracker(ticketDao, Duration.ofMinutes(1));
+    ticketService = new TicketService(ticketDao, new PasswordHasher(passwordEncoder, 10, 1, 10, Duration.ofSeconds(1)),
+        fareMatrix, new DiscountEngine(),
+        new QuoteCache(100), new RouteFinder(fareMatrix), credentialCache, seatCapacityTracker,
+        new ExpiredReservationSweeper(ticketDao, seatCapacityTracker, 500, 100), reservationHolds, new TownIndex(fareMatrix),
+        new QueryMetrics(Duration.ofSeconds(1)),
+        new RoutingDataSource(mock(DataSource.class), Map.of(), Duration.ofSeconds(5), RoutingDataSource.MYSQL_LAG),
+        new DestinationImporter(ticketDao, new ObjectMapper(), 500), new BulkPasswordEncoder(passwordEncoder, 2));
     authentication = Mockito.mock(Authentication.class);
     securityContext = Mockito.mock(SecurityContext.class);
   }
@@ -96,16 +153,27 @@ class TicketServiceTest
   {
     mockUser1Authentication();
 
-    when(ticketDao.loadTowns(anyString(), anyString()))
-        .thenReturn(true);
-
-    when(ticketDao.getPriceOfTicket(anyString(), anyString()))
-        .thenReturn(BigDecimal.TEN);
+    mockFares();
 
     BigDecimal priceOfTicket = ticketService.getPriceOfTicket(LocalTime.parse("17:38:00"), "Sofia", "Varna",
         Travel.ROUND_TRIP.toString(), false);
 
-    verify(ticketDao, times(1)).getPriceOfTicket("Sofia", "Varna");
+    verify(ticketDao, times(1)).loadTrains();
+
+    assertEquals(BigDecimal.valueOf(13), priceOfTicket);
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#getPriceOfTicket}
+   */
+  @Test
+  void getPriceOfTicket_MatchesTheTownsWithoutTheCase()
+  {
+    mockUser1Authentication();
+    mockFares();
+
+    BigDecimal priceOfTicket = ticketService.getPriceOfTicket(LocalTime.parse("17:38:00"), "sofia", "VARNA",
+        Travel.ROUND_TRIP.toString(), false);
 
     assertEquals(BigDecimal.valueOf(13), priceOfTicket);
   }
@@ -120,8 +188,8 @@ class TicketServiceTest
         () -> {
           mockUser1Authentication();
 
-          when(ticketDao.loadTowns(anyString(), anyString()))
-              .thenReturn(false);
+          when(ticketDao.loadTrains())
+              .thenReturn(new ArrayList<>());
 
           ticketService.getPriceOfTicket(LocalTime.now(), "Sofia", "Varna",
               Travel.ONE_WAY_TRIP.toString(), false);
@@ -142,8 +210,7 @@ class TicketServiceTest
         () -> {
           mockUser1Authentication();
 
-          when(ticketDao.loadTowns(anyString(), anyString()))
-              .thenReturn(true);
+          mockFares();
 
           ticketService.getPriceOfTicket(LocalTime.now(), "Sofia", "Varna",
               "TRIP_TEST", true);
@@ -161,16 +228,12 @@ class TicketServiceTest
   {
     mockUser1Authentication();
 
-    when(ticketDao.loadTowns(anyString(), anyString()))
-        .thenReturn(true);
-
-    when(ticketDao.getPriceOfTicket(anyString(), anyString()))
-        .thenReturn(BigDecimal.TEN);
+    mockFares();
 
     BigDecimal priceOfTicket = ticketService.getPriceOfTicket(LocalTime.parse("17:38:00"), "Sofia", "Varna",
         Travel.ONE_WAY_TRIP.toString(), false);
 
-    verify(ticketDao, times(1)).getPriceOfTicket("Sofia", "Varna");
+    verify(ticketDao, times(1)).loadTrains();
 
     assertEquals(BigDecimal.valueOf(6), priceOfTicket);
   }
@@ -183,16 +246,12 @@ class TicketServiceTest
   {
     mockUser1Authentication();
 
-    when(ticketDao.loadTowns(anyString(), anyString()))
-        .thenReturn(true);
-
-    when(ticketDao.getPriceOfTicket(anyString(), anyString()))
-        .thenReturn(BigDecimal.TEN);
+    mockFares();
 
     BigDecimal priceOfTicket = ticketService.getPriceOfTicket(LocalTime.parse("17:38:00"), "Sofia", "Varna",
         Travel.ONE_WAY_TRIP.toString(), true);
 
-    verify(ticketDao, times(1)).getPriceOfTicket("Sofia", "Varna");
+    verify(ticketDao, times(1)).loadTrains();
 
     assertEquals(BigDecimal.valueOf(6), priceOfTicket);
   }
@@ -205,16 +264,12 @@ class TicketServiceTest
   {
     mockUser1Authentication();
 
-    when(ticketDao.loadTowns(anyString(), anyString()))
-        .thenReturn(true);
-
-    when(ticketDao.getPriceOfTicket(anyString(), anyString()))
-        .thenReturn(BigDecimal.TEN);
+    mockFares();
 
     BigDecimal priceOfTicket = ticketService.getPriceOfTicket(LocalTime.parse("09:38:00"), "Sofia", "Varna",
         Travel.ONE_WAY_TRIP.toString(), false);
 
-    verify(ticketDao, times(1)).getPriceOfTicket("Sofia", "Varna");
+    verify(ticketDao, times(1)).loadTrains();
 
     assertEquals(BigDecimal.valueOf(6), priceOfTicket);
   }
@@ -227,16 +282,12 @@ class TicketServiceTest
   {
     mockUser3Authentication();
 
-    when(ticketDao.loadTowns(anyString(), anyString()))
-        .thenReturn(true);
-
-    when(ticketDao.getPriceOfTicket(anyString(), anyString()))
-        .thenReturn(BigDecimal.TEN);
+    mockFares();
 
     BigDecimal priceOfTicket = ticketService.getPriceOfTicket(LocalTime.parse("09:38:00"), "Sofia", "Varna",
         Travel.ONE_WAY_TRIP.toString(), false);
 
-    verify(ticketDao, times(1)).getPriceOfTicket("Sofia", "Varna");
+    verify(ticketDao, times(1)).loadTrains();
 
     assertEquals(BigDecimal.valueOf(9), priceOfTicket);
   }
@@ -249,16 +300,12 @@ class TicketServiceTest
   {
     mockUser2Authentication();
 
-    when(ticketDao.loadTowns(anyString(), anyString()))
-        .thenReturn(true);
-
-    when(ticketDao.getPriceOfTicket(anyString(), anyString()))
-        .thenReturn(BigDecimal.TEN);
+    mockFares();
 
     BigDecimal priceOfTicket = ticketService.getPriceOfTicket(LocalTime.parse("17:38:00"), "Sofia", "Varna",
         Travel.ONE_WAY_TRIP.toString(), true);
 
-    verify(ticketDao, times(1)).getPriceOfTicket("Sofia", "Varna");
+    verify(ticketDao, times(1)).loadTrains();
 
     assertEquals(BigDecimal.valueOf(5), priceOfTicket);
   }
@@ -271,16 +318,12 @@ class TicketServiceTest
   {
     mockUser3Authentication();
 
-    when(ticketDao.loadTowns(anyString(), anyString()))
-        .thenReturn(true);
-
-    when(ticketDao.getPriceOfTicket(anyString(), anyString()))
-        .thenReturn(BigDecimal.TEN);
+    mockFares();
 
     BigDecimal priceOfTicket = ticketService.getPriceOfTicket(LocalTime.parse("17:38:00"), "Sofia", "Varna",
         Travel.ONE_WAY_TRIP.toString(), false);
 
-    verify(ticketDao, times(1)).getPriceOfTicket("Sofia", "Varna");
+    verify(ticketDao, times(1)).loadTrains();
 
     assertEquals(BigDecimal.valueOf(10), priceOfTicket);
   }
@@ -293,16 +336,12 @@ class TicketServiceTest
   {
     mockUser3Authentication();
 
-    when(ticketDao.loadTowns(anyString(), anyString()))
-        .thenReturn(true);
-
-    when(ticketDao.getPriceOfTicket(anyString(), anyString()))
-        .thenReturn(BigDecimal.TEN);
+    mockFares();
 
     BigDecimal priceOfTicket = ticketService.getPriceOfTicket(LocalTime.parse("17:38:00"), "Sofia", "Varna",
         Travel.ONE_WAY_TRIP.toString(), true);
 
-    verify(ticketDao, times(1)).getPriceOfTicket("Sofia", "Varna");
+    verify(ticketDao, times(1)).loadTrains();
 
     assertEquals(BigDecimal.valueOf(9), priceOfTicket);
   }
@@ -315,20 +354,198 @@ class TicketServiceTest
   {
     mockUser1Authentication();
 
-    when(ticketDao.loadTowns(anyString(), anyString()))
-        .thenReturn(true);
-
-    when(ticketDao.getPriceOfTicket(anyString(), anyString()))
-        .thenReturn(BigDecimal.TEN);
+    mockFares();
 
     BigDecimal priceOfTicket = ticketService.getPriceOfTicket(LocalTime.parse("17:38:00"), "Sofia", "Varna",
         Travel.ONE_WAY_TRIP.toString(), false);
 
-    verify(ticketDao, times(1)).getPriceOfTicket("Sofia", "Varna");
+    verify(ticketDao, times(1)).loadTrains();
 
     assertEquals(BigDecimal.valueOf(6), priceOfTicket);
   }
 
+  /**
+   * Link to the Dao {@link TicketService#getPriceOfTicket}
+   */
+  @Test
+  void getPriceOfTicket_LoadsTheTrainTableOnlyOnce()
+  {
+    mockUser3Authentication();
+    mockFares();
+
+    ticketService.getPriceOfTicket(LocalTime.parse("17:38:00"), "Sofia", "Varna",
+        Travel.ONE_WAY_TRIP.toString(), false);
+    ticketService.getPriceOfTicket(LocalTime.parse("10:38:00"), "Sofia", "Varna",
+        Travel.ROUND_TRIP.toString(), true);
+
+    verify(ticketDao, times(1)).loadTrains();
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#getPriceOfTicket}
+   */
+  @Test
+  void getPriceOfTicket_RepeatedQuoteIsServedFromTheCache()
+  {
+    mockUser3Authentication();
+    mockFares();
+
+    BigDecimal first = ticketService.getPriceOfTicket(LocalTime.parse("10:38:00"), "Sofia", "Varna",
+        Travel.ONE_WAY_TRIP.toString(), false);
+    BigDecimal second = ticketService.getPriceOfTicket(LocalTime.parse("11:15:00"), "Sofia", "Varna",
+        Travel.ONE_WAY_TRIP.toString(), false);
+
+    CacheStatistics statistics = ticketService.getQuoteCacheStatistics();
+    assertEquals(BigDecimal.valueOf(9), first);
+    assertSame(first, second);
+    assertEquals(1, statistics.getHits());
+    assertEquals(1, statistics.getMisses());
+    assertEquals(1, statistics.getSize());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#addAvailableDestination}
+   */
+  @Test
+  void addAvailableDestination_InvalidatesTheQuoteCache()
+  {
+    mockUser3Authentication();
+    mockFares();
+    doNothing().when(ticketDao).addAvailableDestination(any());
+
+    ticketService.getPriceOfTicket(LocalTime.parse("17:38:00"), "Sofia", "Varna",
+        Travel.ONE_WAY_TRIP.toString(), false);
+
+    List<Train> trains = new ArrayList<>();
+    trains.add(Train
+        .builder()
+        .id(1L)
+        .town1("Sofia")
+        .town2("Varna")
+        .distance(440)
+        .initialPrice(BigDecimal.valueOf(12))
+        .build());
+    when(ticketDao.loadTrains())
+        .thenReturn(trains);
+    ticketService.addAvailableDestination(DestinationInfo.builder().build());
+
+    BigDecimal priceOfTicket = ticketService.getPriceOfTicket(LocalTime.parse("17:38:00"), "Sofia", "Varna",
+        Travel.ONE_WAY_TRIP.toString(), false);
+
+    assertEquals(BigDecimal.valueOf(12), priceOfTicket);
+    assertEquals(0, ticketService.getQuoteCacheStatistics().getHits());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#getPricesOfTickets}
+   */
+  @Test
+  void getPricesOfTickets_ReadsTheUserAndTheFaresOncePerBatch()
+  {
+    mockUser2Authentication();
+    mockFares();
+
+    List<PriceRequest> requests = new ArrayList<>();
+    requests.add(priceRequest("17:38:00", Travel.ONE_WAY_TRIP, false));
+    requests.add(priceRequest("17:38:00", Travel.ONE_WAY_TRIP, true));
+    requests.add(priceRequest("12:00:00", Travel.ROUND_TRIP, false));
+
+    List<BigDecimal> prices = ticketService.getPricesOfTickets(requests);
+
+    verify(ticketDao, times(1)).loadTrains();
+    verify(ticketDao, times(1)).findByUsername(any(String.class));
+    assertEquals(BigDecimal.valueOf(10), prices.get(0));
+    assertEquals(BigDecimal.valueOf(5), prices.get(1));
+    assertEquals(BigDecimal.valueOf(19), prices.get(2));
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#getPricesOfTickets}
+   */
+  @Test
+  void getPricesOfTickets_ThrowsIllegalArgumentException_IfOneOfTheTravelTypesIsInvalid()
+  {
+    IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> {
+          mockUser2Authentication();
+          mockFares();
+
+          List<PriceRequest> requests = new ArrayList<>();
+          requests.add(priceRequest("17:38:00", Travel.ONE_WAY_TRIP, false));
+          requests.add(PriceRequest
+              .builder()
+              .diapasonTime(LocalTime.parse("17:38:00"))
+              .townFrom("Sofia")
+              .townTo("Varna")
+              .wayOfTrip("TRIP_TEST")
+              .build());
+
+          ticketService.getPricesOfTickets(requests);
+        });
+    assertEquals("Invalid way of trip!", thrown.getMessage());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#findRoute}
+   */
+  @Test
+  void findRoute_ChoosesTheCheapestOrTheShortestItinerary()
+  {
+    List<Train> trains = new ArrayList<>();
+    trains.add(train(1L, "Sofia", "Varna", 440, 40));
+    trains.add(train(2L, "Sofia", "Plovdiv", 150, 10));
+    trains.add(train(3L, "Plovdiv", "Burgas", 250, 12));
+    trains.add(train(4L, "Burgas", "Varna", 130, 8));
+    when(ticketDao.loadTrains())
+        .thenReturn(trains);
+
+    Route cheapest = ticketService.findRoute("Sofia", "Varna", RouteCriteria.CHEAPEST.toString());
+    Route shortest = ticketService.findRoute("Sofia", "Varna", RouteCriteria.SHORTEST.toString());
+
+    assertEquals(3, cheapest.getLegs().size());
+    assertEquals(BigDecimal.valueOf(30), cheapest.getTotalPrice());
+    assertEquals(530, cheapest.getTotalDistance());
+    assertEquals(1, shortest.getLegs().size());
+    assertEquals(1L, shortest.getLegs().get(0).getId());
+    verify(ticketDao, times(1)).loadTrains();
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#findRoute}
+   */
+  @Test
+  void findRoute_ThrowsIllegalArgumentException_IfTheTownsAreNotConnected()
+  {
+    IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> {
+          mockFares();
+
+          ticketService.findRoute("Varna", "Sofia", RouteCriteria.CHEAPEST.toString());
+        });
+    assertEquals("There is no train for your trip to this town!", thrown.getMessage());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#getCurrentLoggedUser}
+   */
+  @Test
+  void getCurrentLoggedUser_ReadsTheUserFromThePrincipal()
+  {
+    when(authentication.getPrincipal())
+        .thenReturn(new TicketUserDetails(7L, "ivan76", "abc123ABC", Role.USER, CardType.FAMILY));
+    when(securityContext.getAuthentication())
+        .thenReturn(authentication);
+    SecurityContextHolder.setContext(securityContext);
+
+    UserRegistrationDetail user = ticketService.getCurrentLoggedUser();
+
+    verify(ticketDao, never()).findByUsername(any(String.class));
+    assertEquals(7L, user.getId());
+    assertEquals("ivan76", user.getUsername());
+    assertEquals(Role.USER, user.getRole());
+    assertEquals(CardType.FAMILY, user.getTypeOfCard());
+  }
+
   /**
    * Link to the Dao {@link TicketService#reservation}
    */
@@ -336,14 +553,21 @@ class TicketServiceTest
   void reservation()
   {
     mockUser1Authentication();
-    doNothing().when(ticketDao).reservation(anyLong(), any(), any(), any(), anyLong());
+    List<Long> ticketIds = new ArrayList<>();
+    ticketIds.add(11L);
+    ticketIds.add(12L);
+    when(ticketDao.batchReservation(anyLong(), any(), any(), any(), anyLong(), anyInt()))
+        .thenReturn(ticketIds);
 
-    ticketService.reservation(LocalDateTime.parse("2023-04-07T00:24:01.230662200"),
+    List<Long> reserved = ticketService.reservation(LocalDateTime.parse("2023-04-07T00:24:01.230662200"),
         LocalDateTime.parse("2023-04-07T00:24:01.230662200"), BigDecimal.TEN, 1L, 2);
 
-    verify(ticketDao, times(2)).reservation(1L, LocalDateTime.parse("2023-04-07T00:24:01.230662200"),
+    verify(ticketDao, times(1)).batchReservation(1L, LocalDateTime.parse("2023-04-07T00:24:01.230662200"),
         LocalDateTime.parse("2023-04-07T00:24:01.230662200"),
-        BigDecimal.TEN, 1L);
+        BigDecimal.TEN, 1L, 2);
+    verify(ticketDao, never()).reservation(anyLong(), any(), any(), any(), anyLong());
+    assertEquals(ticketIds, reserved);
+    assertEquals(2, reservationHolds.size());
   }
 
   /**
@@ -358,9 +582,96 @@ class TicketServiceTest
     ticketService.reservation(LocalDateTime.parse("2023-04-07T00:24:01.230662200"),
         LocalDateTime.parse("2023-04-07T00:24:01.230662200"), BigDecimal.TEN, 1L, 0);
 
-    verify(ticketDao, times(0)).reservation(1L, LocalDateTime.parse("2023-04-07T00:24:01.230662200"),
-        LocalDateTime.parse("2023-04-07T00:24:01.230662200"),
-        BigDecimal.TEN, 1L);
+    verify(ticketDao, times(0)).batchReservation(anyLong(), any(), any(), any(), anyLong(), anyInt());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#reservation}
+   */
+  @Test
+  void reservation_ThrowsIllegalArgumentException_IfTheTrainIsFull()
+  {
+    IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> {
+          mockUser1Authentication();
+          when(ticketDao.loadFreeSeats(anyLong(), any()))
+              .thenReturn(3, 0);
+          when(ticketDao.reserveSeats(anyLong(), any(), anyInt()))
+              .thenReturn(true);
+
+          ticketService.reservation(LocalDateTime.parse("2023-04-07T10:00"),
+              LocalDateTime.parse("2023-04-07T14:00"), BigDecimal.TEN, 1L, 2);
+          ticketService.reservation(LocalDateTime.parse("2023-04-07T10:00"),
+              LocalDateTime.parse("2023-04-07T14:00"), BigDecimal.TEN, 1L, 2);
+        });
+    assertEquals("There are not enough free seats on this train!", thrown.getMessage());
+
+    verify(ticketDao, times(1)).reserveSeats(1L, LocalDate.parse("2023-04-07"), 2);
+    verify(ticketDao, times(1)).batchReservation(anyLong(), any(), any(), any(), anyLong(), anyInt());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#reservation}
+   */
+  @Test
+  void reservation_ThrowsIllegalArgumentException_IfAnotherInstanceSoldTheSeats()
+  {
+    IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> {
+          mockUser1Authentication();
+          when(ticketDao.loadFreeSeats(anyLong(), any()))
+              .thenReturn(3, 1);
+          when(ticketDao.reserveSeats(anyLong(), any(), anyInt()))
+              .thenReturn(false);
+
+          ticketService.reservation(LocalDateTime.parse("2023-04-07T10:00"),
+              LocalDateTime.parse("2023-04-07T14:00"), BigDecimal.TEN, 1L, 2);
+        });
+    assertEquals("There are not enough free seats on this train!", thrown.getMessage());
+
+    verify(ticketDao, never()).batchReservation(anyLong(), any(), any(), any(), anyLong(), anyInt());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#reservation}
+   */
+  @Test
+  void reservation_GivesTheSeatsBack_IfTheDatabaseFails()
+  {
+    mockUser1Authentication();
+    when(ticketDao.loadFreeSeats(anyLong(), any()))
+        .thenReturn(2);
+    when(ticketDao.reserveSeats(anyLong(), any(), anyInt()))
+        .thenThrow(new QueryTimeoutException("Lock wait timeout exceeded"))
+        .thenReturn(true);
+
+    Assertions.assertThrows(QueryTimeoutException.class,
+        () -> ticketService.reservation(LocalDateTime.parse("2023-04-07T10:00"),
+            LocalDateTime.parse("2023-04-07T14:00"), BigDecimal.TEN, 1L, 2));
+    ticketService.reservation(LocalDateTime.parse("2023-04-07T10:00"),
+        LocalDateTime.parse("2023-04-07T14:00"), BigDecimal.TEN, 1L, 2);
+
+    verify(ticketDao, times(1)).loadFreeSeats(anyLong(), any());
+    verify(ticketDao, times(1)).batchReservation(anyLong(), any(), any(), any(), anyLong(), anyInt());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#reservation}
+   */
+  @Test
+  void reservation_ReadsAnUnlimitedTrainOnce()
+  {
+    mockUser1Authentication();
+    when(ticketDao.loadFreeSeats(anyLong(), any()))
+        .thenReturn(null);
+
+    ticketService.reservation(LocalDateTime.parse("2023-04-07T10:00"),
+        LocalDateTime.parse("2023-04-07T14:00"), BigDecimal.TEN, 1L, 2);
+    ticketService.reservation(LocalDateTime.parse("2023-04-07T10:00"),
+        LocalDateTime.parse("2023-04-07T14:00"), BigDecimal.TEN, 1L, 2);
+
+    verify(ticketDao, times(1)).loadFreeSeats(anyLong(), any());
+    verify(ticketDao, never()).reserveSeats(anyLong(), any(), anyInt());
   }
 
   /**
@@ -459,6 +770,118 @@ class TicketServiceTest
     ticketService.registration(information);
   }
 
+  /**
+   * Link to the Dao {@link TicketService#registration}
+   */
+  @Test
+  void registration_AcceptsTheUserRole()
+  {
+    Registration information = registration("test");
+    information.setRole(Role.USER.toString());
+
+    ticketService.registration(information);
+
+    verify(ticketDao, times(1)).registration(any(UserRegistrationDetail.class));
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#registration}
+   */
+  @Test
+  void registration_ThrowsUsernameTakenException_IfTheUsernameExists()
+  {
+    doThrow(new DuplicateKeyException("Duplicate entry 'test' for key 'ux_users_username'"))
+        .when(ticketDao).registration(any(UserRegistrationDetail.class));
+
+    UsernameTakenException thrown = Assertions.assertThrows(UsernameTakenException.class,
+        () -> ticketService.registration(registration("test")));
+    assertEquals("The username is already taken!", thrown.getMessage());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#bulkRegistration}
+   */
+  @Test
+  void bulkRegistration_ReturnsAResultForEveryRecord()
+  {
+    Registration invalidRole = registration("georgi");
+    invalidRole.setRole("Test role");
+    List<Registration> registrations = List.of(registration("ivan"), invalidRole, registration("Ivan"),
+        registration("maria"), registration("petar"));
+
+    when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> "hash-" + invocation.getArgument(0));
+    when(ticketDao.findExistingUsernames(List.of("ivan", "maria", "petar"))).thenReturn(Set.of("Maria"));
+    //petar was registered between the lookup and the insert
+    when(ticketDao.batchRegistration(anyList())).thenReturn(new boolean[]{true, false});
+
+    List<RegistrationResult> results = ticketService.bulkRegistration(registrations);
+
+    assertEquals(5, results.size());
+    assertEquals(RegistrationStatus.REGISTERED, results.get(0).getStatus());
+    assertEquals("Invalid role!", results.get(1).getMessage());
+    assertEquals("The username is repeated in the request!", results.get(2).getMessage());
+    assertEquals("The username is already taken!", results.get(3).getMessage());
+    assertEquals("The username is already taken!", results.get(4).getMessage());
+    assertEquals(4, results.get(4).getIndex());
+    //maria is rejected before her password is hashed
+    verify(passwordEncoder, times(2)).encode(anyString());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#bulkRegistration}
+   */
+  @Test
+  void bulkRegistration_RejectsEmptyRecordsAndMissingPasswords()
+  {
+    Registration withoutPassword = registration("georgi");
+    withoutPassword.setPassword(null);
+    List<Registration> registrations = Arrays.asList(registration("ivan"), null, withoutPassword);
+
+    when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> "hash-" + invocation.getArgument(0));
+    when(ticketDao.batchRegistration(anyList())).thenReturn(new boolean[]{true});
+
+    List<RegistrationResult> results = ticketService.bulkRegistration(registrations);
+
+    assertEquals(3, results.size());
+    assertEquals(RegistrationStatus.REGISTERED, results.get(0).getStatus());
+    assertEquals(RegistrationStatus.REJECTED, results.get(1).getStatus());
+    assertEquals("The record is empty!", results.get(1).getMessage());
+    assertEquals("The password is required!", results.get(2).getMessage());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#bulkRegistration}
+   */
+  @Test
+  void bulkRegistration_InsertsTheHashes()
+  {
+    when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> "hash-" + invocation.getArgument(0));
+    when(ticketDao.batchRegistration(anyList())).thenAnswer(
+        invocation -> new boolean[((List<?>) invocation.getArgument(0)).size()]);
+
+    ticketService.bulkRegistration(List.of(registration("ivan"), registration("maria")));
+
+    verify(ticketDao, times(1)).batchRegistration(argThat(users -> 2 == users.size() &&
+        users.stream().allMatch(user -> ("hash-" + user.getUsername() + "123").equals(user.getPassword()))));
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#bulkRegistration}
+   */
+  @Test
+  void bulkRegistration_ThrowsIllegalArgumentException_IfThereAreTooManyRecords()
+  {
+    List<Registration> registrations = new ArrayList<>();
+    for (int i = 0; i <= TicketService.MAX_BULK_REGISTRATIONS; i++) {
+      registrations.add(registration("user" + i));
+    }
+
+    IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ticketService.bulkRegistration(registrations));
+    assertEquals("At most 50000 users can be registered at once!", thrown.getMessage());
+    verify(ticketDao, never()).batchRegistration(anyList());
+  }
+
   /**
    * Link to the Dao {@link TicketService#loadAvailableDestinations}
    */
@@ -482,42 +905,174 @@ class TicketServiceTest
     ticketService.addAvailableDestination(DestinationInfo.builder().build());
   }
 
+  /**
+   * Link to the Dao {@link TicketService#addAvailableDestination}
+   */
+  @Test
+  void addAvailableDestination_RefreshesTheFareMatrix()
+  {
+    mockUser3Authentication();
+    doNothing().when(ticketDao).addAvailableDestination(any());
+
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ticketService.getPriceOfTicket(LocalTime.parse("17:38:00"), "Sofia", "Varna",
+            Travel.ONE_WAY_TRIP.toString(), false));
+
+    mockFares();
+    ticketService.addAvailableDestination(DestinationInfo.builder().build());
+
+    BigDecimal priceOfTicket = ticketService.getPriceOfTicket(LocalTime.parse("17:38:00"), "Sofia", "Varna",
+        Travel.ONE_WAY_TRIP.toString(), false);
+
+    verify(ticketDao, times(2)).loadTrains();
+    assertEquals(BigDecimal.valueOf(10), priceOfTicket);
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#addAvailableDestination}
+   */
+  @Test
+  void addAvailableDestination_RefreshesTheFareMatrixAfterTheCommit()
+  {
+    doNothing().when(ticketDao).addAvailableDestination(any());
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      ticketService.addAvailableDestination(DestinationInfo.builder().build());
+      verify(ticketDao, never()).loadTrains();
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+      verify(ticketDao, times(1)).loadTrains();
+    }
+    finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
   /**
    * Link to the Dao {@link TicketService#payTicket}]}
    */
   @Test
   void payTicket()
   {
-    doNothing().when(ticketDao).payTicket(anyLong());
+    when(ticketDao.payTicket(anyLong()))
+        .thenReturn(true);
+    reservationHolds.hold(List.of(1L, 2L), LocalDateTime.now().plusDays(7));
 
     ticketService.payTicket(1L);
+
+    verify(ticketDao, never()).getTypeOfPayReservation(anyLong());
+    assertEquals(1, reservationHolds.size());
   }
 
   /**
-   * Link to the Dao {@link TicketService#loadAllReservationsOfUser}]}
+   * Link to the Dao {@link TicketService#payTicket}
    */
   @Test
-  void loadAllReservationsOfUser()
+  void payTicket_ThrowsIllegalArgumentException_IfTheTicketIsAlreadyPayed()
   {
-    List<Date> dates = new ArrayList<>();
-    dates.add(Date
-        .builder()
-        .dateAfterSevenDays(LocalDate.now())
-        .id(1L)
-        .startDate(LocalDate.now())
-        .build());
+    IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> {
+          when(ticketDao.payTicket(anyLong()))
+              .thenReturn(false);
+          when(ticketDao.getTypeOfPayReservation(1L))
+              .thenReturn("Y");
+
+          ticketService.payTicket(1L);
+        });
+    assertEquals("This ticket is already payed!", thrown.getMessage());
+  }
 
+  /**
+   * Link to the Dao {@link TicketService#payTicket}
+   */
+  @Test
+  void payTicket_ThrowsIllegalArgumentException_IfTheTicketChangedInTheMeantime()
+  {
+    when(ticketDao.payTicket(anyLong()))
+        .thenReturn(false);
+    when(ticketDao.getTypeOfPayReservation(1L))
+        .thenReturn("N");
+    reservationHolds.hold(List.of(1L), LocalDateTime.now().plusDays(7));
+
+    IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ticketService.payTicket(1L));
+
+    assertEquals("The reservation was changed in the meantime, please try again!", thrown.getMessage());
+    //the ticket is still unpaid, so it keeps its hold
+    assertEquals(1, reservationHolds.size());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#payTicket}
+   */
+  @Test
+  void payTicket_ThrowsIllegalArgumentException_IfTheTicketDoesntExist()
+  {
+    IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> {
+          when(ticketDao.payTicket(anyLong()))
+              .thenReturn(false);
+          when(ticketDao.getTypeOfPayReservation(1L))
+              .thenReturn(null);
+
+          ticketService.payTicket(1L);
+        });
+    assertEquals("This reservation doesn't exist!", thrown.getMessage());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#payTickets}
+   */
+  @Test
+  void payTickets()
+  {
     mockUser1Authentication();
+    when(ticketDao.payTickets(1L, List.of(1L, 2L, 3L)))
+        .thenReturn(1);
+    //2 was already paid, 3 belongs to another user
+    when(ticketDao.findTicketsOfUser(1L, List.of(1L, 2L, 3L)))
+        .thenReturn(Set.of(1L, 2L));
+    reservationHolds.hold(List.of(1L), LocalDateTime.now().plusDays(7));
+
+    List<PaymentResult> results = ticketService.payTickets(List.of(1L, 2L, 3L, 1L));
+
+    assertEquals(3, results.size());
+    assertEquals(PaymentStatus.PAID, results.get(0).getStatus());
+    assertEquals(PaymentStatus.PAID, results.get(1).getStatus());
+    assertEquals(PaymentStatus.NOT_FOUND, results.get(2).getStatus());
+    assertEquals(3L, results.get(2).getTicketId());
+    verify(ticketDao, never()).payTicket(anyLong());
+    assertEquals(0, reservationHolds.size());
+  }
 
-    when(ticketDao.getStartDate(1L))
-        .thenReturn(dates);
+  /**
+   * Link to the Dao {@link TicketService#payTickets}
+   */
+  @Test
+  void payTickets_ReadsNothingBack_IfEveryTicketIsPaidNow()
+  {
+    mockUser1Authentication();
+    when(ticketDao.payTickets(1L, List.of(1L, 2L)))
+        .thenReturn(2);
+
+    List<PaymentResult> results = ticketService.payTickets(List.of(1L, 2L));
 
-    doNothing().when(ticketDao).removeOldTicket(1L);
+    assertEquals(PaymentStatus.PAID, results.get(0).getStatus());
+    assertEquals(PaymentStatus.PAID, results.get(1).getStatus());
+    verify(ticketDao, never()).findTicketsOfUser(anyLong(), any());
+  }
 
-    when(ticketDao.loadAllReservationsOfUser(1L))
+  /**
+   * Link to the Dao {@link TicketService#loadAllReservationsOfUser}]}
+   */
+  @Test
+  void loadAllReservationsOfUser()
+  {
+    mockUser1Authentication();
+
+    when(ticketDao.loadAllReservationsOfUser(eq(1L), any()))
         .thenReturn(new ArrayList<>());
 
-    ticketService.loadAllReservationsOfUser();
     assertEquals(new ArrayList<>(), ticketService.loadAllReservationsOfUser());
   }
 
@@ -525,30 +1080,66 @@ class TicketServiceTest
    * Link to the Dao {@link TicketService#loadAllReservationsOfUser}]}
    */
   @Test
-  void loadAllReservationsOfUser_Expired()
+  void loadAllReservationsOfUser_DoesNotRemoveExpired()
   {
-    List<Date> dates = new ArrayList<>();
-    dates.add(Date
-        .builder()
-        .dateAfterSevenDays(LocalDate.parse("2015-06-22"))
-        .id(1L)
-        .startDate(LocalDate.parse("2016-06-22"))
-        .build());
+    mockUser1Authentication();
+
+    when(ticketDao.loadAllReservationsOfUser(eq(1L), any()))
+        .thenReturn(new ArrayList<>());
+
+    ticketService.loadAllReservationsOfUser();
+
+    verify(ticketDao, never()).removeExpiredReservations(any(), anyInt());
+  }
+
 
+  /**
+   * Link to the Dao {@link TicketService#loadReservationsPage}
+   */
+  @Test
+  void loadReservationsPage()
+  {
     mockUser1Authentication();
+    Page<Ticket> page = Page
+        .<Ticket>builder()
+        .items(new ArrayList<>())
+        .build();
+    when(ticketDao.loadReservationsPage(eq(1L), any(), any(), eq(20)))
+        .thenReturn(page);
 
-    when(ticketDao.getStartDate(1L))
-        .thenReturn(dates);
+    assertSame(page, ticketService.loadReservationsPage("2023-04-07T10:00_15", 20));
+    verify(ticketDao, times(1)).loadReservationsPage(eq(1L), any(),
+        argThat(cursor -> LocalDateTime.parse("2023-04-07T10:00").equals(cursor.getStartDate())
+            && 15L == cursor.getId()), eq(20));
+  }
 
-    doNothing().when(ticketDao).removeOldTicket(1L);
+  /**
+   * Link to the Dao {@link TicketService#loadReservationsPage}
+   */
+  @Test
+  void loadReservationsPage_FirstPage()
+  {
+    mockUser1Authentication();
 
-    when(ticketDao.loadAllReservationsOfUser(1L))
-        .thenReturn(new ArrayList<>());
+    ticketService.loadReservationsPage(null, 20);
 
-    ticketService.loadAllReservationsOfUser();
-    assertEquals(new ArrayList<>(), ticketService.loadAllReservationsOfUser());
+    verify(ticketDao, times(1)).loadReservationsPage(eq(1L), any(), isNull(), eq(20));
   }
 
+  /**
+   * Link to the Dao {@link TicketService#loadReservationsPage}
+   */
+  @Test
+  void loadReservationsPage_ThrowsIllegalArgumentException_IfTheCursorIsInvalid()
+  {
+    IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> {
+          mockUser1Authentication();
+
+          ticketService.loadReservationsPage("15", 20);
+        });
+    assertEquals("Invalid cursor!", thrown.getMessage());
+  }
 
   /**
    * Link to the Dao {@link TicketService#refactorReservation}]}
@@ -556,25 +1147,148 @@ class TicketServiceTest
   @Test
   void refactorReservation()
   {
-    doNothing().when(ticketDao).refactorReservation(1L, "1", "2",
-        "3", "4");
+    when(ticketDao.refactorReservation(1L, "1", "2",
+        "3", "4"))
+        .thenReturn(true);
 
     ticketService.refactorReservation(1L, "1", "2",
         "3", "4");
   }
 
+  /**
+   * Link to the Dao {@link TicketService#refactorReservation}]}
+   */
+  @Test
+  void refactorReservation_MovesTheSeat_IfTheDayChanges()
+  {
+    mockUser1Authentication();
+    when(ticketDao.loadFreeSeats(anyLong(), any()))
+        .thenReturn(1);
+    when(ticketDao.reserveSeats(anyLong(), any(), anyInt()))
+        .thenReturn(true);
+    when(ticketDao.loadReservationMove(1L, "2", "0"))
+        .thenReturn(ReservationMove
+            .builder()
+            .trainId(1L)
+            .startDate(LocalDateTime.parse("2023-04-07T10:00"))
+            .newStartDate(LocalDateTime.parse("2023-04-09T10:00"))
+            .newDateAfterSevenDays(LocalDateTime.parse("2023-04-16T10:00"))
+            .build());
+    when(ticketDao.refactorReservation(1L, "2", "0", "2", "0"))
+        .thenReturn(true);
+
+    ticketService.reservation(LocalDateTime.parse("2023-04-07T10:00"),
+        LocalDateTime.parse("2023-04-07T14:00"), BigDecimal.TEN, 1L, 1);
+    ticketService.refactorReservation(1L, "2", "0", "2", "0");
+    //the seat given back by the moved ticket is sold without reading the train again
+    ticketService.reservation(LocalDateTime.parse("2023-04-07T10:00"),
+        LocalDateTime.parse("2023-04-07T14:00"), BigDecimal.TEN, 1L, 1);
+
+    verify(ticketDao, times(1)).reserveSeats(1L, LocalDate.parse("2023-04-09"), 1);
+    verify(ticketDao, times(1)).loadFreeSeats(1L, LocalDate.parse("2023-04-07"));
+    verify(ticketDao, times(2)).reserveSeats(1L, LocalDate.parse("2023-04-07"), 1);
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#refactorReservation}]}
+   */
+  @Test
+  void refactorReservation_KeepsTheSeat_IfTheDayStaysTheSame()
+  {
+    when(ticketDao.loadReservationMove(1L, "0", "0"))
+        .thenReturn(ReservationMove
+            .builder()
+            .trainId(1L)
+            .startDate(LocalDateTime.parse("2023-04-07T10:00"))
+            .newStartDate(LocalDateTime.parse("2023-04-07T10:00"))
+            .newDateAfterSevenDays(LocalDateTime.parse("2023-04-14T10:00"))
+            .build());
+    when(ticketDao.refactorReservation(1L, "0", "0", "1", "0"))
+        .thenReturn(true);
+
+    ticketService.refactorReservation(1L, "0", "0", "1", "0");
+
+    verify(ticketDao, never()).loadFreeSeats(anyLong(), any());
+    verify(ticketDao, never()).reserveSeats(anyLong(), any(), anyInt());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#refactorReservation}]}
+   */
+  @Test
+  void refactorReservation_MovesThePaymentHold()
+  {
+    reservationHolds.hold(List.of(1L), LocalDateTime.now().minusDays(1));
+    when(ticketDao.loadReservationMove(1L, "2", "0"))
+        .thenReturn(ReservationMove
+            .builder()
+            .trainId(1L)
+            .startDate(LocalDateTime.now().minusDays(8))
+            .newStartDate(LocalDateTime.now().minusDays(6))
+            .newDateAfterSevenDays(LocalDateTime.now().plusDays(1))
+            .build());
+    when(ticketDao.loadFreeSeats(anyLong(), any()))
+        .thenReturn(null);
+    when(ticketDao.refactorReservation(1L, "2", "0", "2", "0"))
+        .thenReturn(true);
+
+    ticketService.refactorReservation(1L, "2", "0", "2", "0");
+    reservationHolds.expire();
+
+    verify(ticketDao, never()).removeExpiredHolds(anyList(), any());
+    assertEquals(1, reservationHolds.size());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#refactorReservation}]}
+   */
+  @Test
+  void refactorReservation_ThrowsIllegalArgumentException_IfTheReservationIsAlreadyPayed()
+  {
+    IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> {
+          when(ticketDao.refactorReservation(1L, "1", "2", "3", "4"))
+              .thenReturn(false);
+          when(ticketDao.getTypeOfPayReservation(1L))
+              .thenReturn("Y");
+
+          ticketService.refactorReservation(1L, "1", "2", "3", "4");
+        });
+    assertEquals("Sorry you can't change the reservation, the ticket is already payed!", thrown.getMessage());
+    verify(ticketDao, never()).reserveSeats(anyLong(), any(), anyInt());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#refactorReservation}]}
+   */
+  @Test
+  void refactorReservation_ThrowsIllegalArgumentException_IfTheReservationDoesntExist()
+  {
+    when(ticketDao.refactorReservation(1L, "1", "2", "3", "4"))
+        .thenReturn(false);
+    when(ticketDao.getTypeOfPayReservation(1L))
+        .thenReturn(null);
+
+    IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ticketService.refactorReservation(1L, "1", "2", "3", "4"));
+
+    assertEquals("This reservation doesn't exist!", thrown.getMessage());
+  }
+
   /**
    * Link to the Dao {@link TicketService#removeTicketReservation}]}
    */
   @Test
   void removeTicketReservation()
   {
-    when(ticketDao.getTypeOfPayReservation(any()))
-        .thenReturn("N");
-
-    doNothing().when(ticketDao).removeTicketReservation(1L);
+    when(ticketDao.removeTicketReservation(1L))
+        .thenReturn(true);
+    reservationHolds.hold(List.of(1L), LocalDateTime.now().plusDays(7));
 
     ticketService.removeTicketReservation(1L);
+
+    verify(ticketDao, never()).getTypeOfPayReservation(anyLong());
+    assertEquals(0, reservationHolds.size());
   }
 
   /**
@@ -588,7 +1302,8 @@ class TicketServiceTest
           when(ticketDao.getTypeOfPayReservation(any()))
               .thenReturn(null);
 
-          doNothing().when(ticketDao).removeTicketReservation(1L);
+          when(ticketDao.removeTicketReservation(1L))
+              .thenReturn(false);
 
           ticketService.removeTicketReservation(1L);
         });
@@ -606,7 +1321,8 @@ class TicketServiceTest
           when(ticketDao.getTypeOfPayReservation(any()))
               .thenReturn("Y");
 
-          doNothing().when(ticketDao).removeTicketReservation(1L);
+          when(ticketDao.removeTicketReservation(1L))
+              .thenReturn(false);
 
           ticketService.removeTicketReservation(1L);
         });
@@ -658,6 +1374,26 @@ class TicketServiceTest
     ticketService.refactorUserProfile(1L, "testEmail@abv.bg");
   }
 
+  /**
+   * Link to the Dao {@link TicketService#refactorUserProfile}
+   */
+  @Test
+  void refactorUserProfile_EvictsTheCachedCredentialsOfTheUser()
+  {
+    when(ticketDao.getUser(any()))
+        .thenReturn("USER");
+    credentialCache.put("ivan76", "abc123ABC",
+        new TicketUserDetails(1L, "ivan76", "abc123ABC", Role.USER, CardType.ELDERLY));
+    credentialCache.put("maria", "abc123ABC",
+        new TicketUserDetails(2L, "maria", "abc123ABC", Role.USER, CardType.NONE));
+
+    ticketService.refactorUserProfile(1L, "testEmail@abv.bg");
+
+    assertNull(credentialCache.lookup("ivan76", "abc123ABC"));
+    assertNotNull(credentialCache.lookup("maria", "abc123ABC"));
+    assertEquals(1, ticketService.getAuthCacheStatistics().getEvictions());
+  }
+
   /**
    * Link to the Dao {@link TicketService#loadUsers}
    */
@@ -670,6 +1406,176 @@ class TicketServiceTest
     ticketService.loadUsers();
   }
 
+  /**
+   * Link to the Dao {@link TicketService#loadUsersPage}
+   */
+  @Test
+  void loadUsersPage()
+  {
+    when(ticketDao.loadUsersPage(0L, 3))
+        .thenReturn(List.of(user(4L), user(7L), user(9L)));
+
+    Page<UserInformation> page = ticketService.loadUsersPage(null, 2);
+
+    assertEquals(2, page.getItems().size());
+    assertEquals("7", page.getNextCursor());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#loadUsersPage}
+   */
+  @Test
+  void loadUsersPage_LastPage()
+  {
+    when(ticketDao.loadUsersPage(7L, 3))
+        .thenReturn(List.of(user(9L)));
+
+    Page<UserInformation> page = ticketService.loadUsersPage(7L, 2);
+
+    assertEquals(1, page.getItems().size());
+    assertNull(page.getNextCursor());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#loadUsersPage}
+   */
+  @Test
+  void loadUsersPage_ThrowsIllegalArgumentException_IfThePageIsTooBig()
+  {
+    IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ticketService.loadUsersPage(null, TicketService.MAX_PAGE_SIZE + 1));
+    assertEquals("The page size must be between 1 and 1000!", thrown.getMessage());
+    verify(ticketDao, never()).loadUsersPage(anyLong(), anyInt());
+  }
+
+  private UserInformation user(Long userId)
+  {
+    return UserInformation
+        .builder()
+        .userId(userId)
+        .username("user" + userId)
+        .build();
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#searchTowns}
+   */
+  @Test
+  void searchTowns()
+  {
+    mockFares();
+
+    assertEquals(List.of("Varna"), ticketService.searchTowns("va", 10));
+    assertEquals(List.of(), ticketService.searchTowns("Ruse", 10));
+    verify(ticketDao, times(1)).loadTrains();
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#searchTowns}
+   */
+  @Test
+  void searchTowns_ThrowsIllegalArgumentException_IfTheLimitIsTooBig()
+  {
+    IllegalArgumentException thrown = Assertions.assertThrows(IllegalArgumentException.class,
+        () -> ticketService.searchTowns("va", TicketService.MAX_TOWN_SUGGESTIONS + 1));
+    assertEquals("The limit must be between 1 and 100!", thrown.getMessage());
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#importDestinations}
+   */
+  @Test
+  void importDestinations_RefreshesTheFaresOnce()
+  {
+    mockFares();
+    when(ticketDao.upsertDestinations(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+    ImportResult result = ticketService.importDestinations(new BufferedReader(new StringReader("" +
+        "Sofia,Varna,440,30\n" +
+        "Sofia,Burgas,380,25\n" +
+        "Sofia,Sofia,1,1\n")), DestinationFormat.CSV);
+
+    assertEquals(2, result.getInserted());
+    assertEquals(1, result.getRejected());
+    verify(ticketDao, times(1)).loadTrains();
+  }
+
+  /**
+   * Link to the Dao {@link TicketService#importDestinations}
+   */
+  @Test
+  void importDestinations_KeepsTheFares_IfTheImportIsRolledBack()
+  {
+    when(ticketDao.upsertDestinations(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      ticketService.importDestinations(new BufferedReader(new StringReader("Sofia,Varna,440,30\n")),
+          DestinationFormat.CSV);
+
+      TransactionSynchronizationManager.getSynchronizations()
+          .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+      verify(ticketDao, never()).loadTrains();
+    }
+    finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  private static Registration registration(String username)
+  {
+    return Registration
+        .builder()
+        .firstName("test")
+        .lastName("test")
+        .password(username + "123")
+        .repeatPassword(username + "123")
+        .email(username + "@abv.bg")
+        .username(username)
+        .typeOfCard(CardType.NONE.toString())
+        .role(Role.USER.toString())
+        .build();
+  }
+
+  private PriceRequest priceRequest(String diapasonTime, Travel wayOfTrip, boolean isThereChild)
+  {
+    return PriceRequest
+        .builder()
+        .diapasonTime(LocalTime.parse(diapasonTime))
+        .townFrom("Sofia")
+        .townTo("Varna")
+        .wayOfTrip(wayOfTrip.toString())
+        .isThereChild(isThereChild)
+        .build();
+  }
+
+  private Train train(Long id, String town1, String town2, int distance, int initialPrice)
+  {
+    return Train
+        .builder()
+        .id(id)
+        .town1(town1)
+        .town2(town2)
+        .distance(distance)
+        .initialPrice(BigDecimal.valueOf(initialPrice))
+        .build();
+  }
+
+  private void mockFares()
+  {
+    List<Train> trains = new ArrayList<>();
+    trains.add(Train
+        .builder()
+        .id(1L)
+        .town1("Sofia")
+        .town2("Varna")
+        .distance(440)
+        .initialPrice(BigDecimal.TEN)
+        .build());
+
+    when(ticketDao.loadTrains())
+        .thenReturn(trains);
+  }
+
   private void mockUser1Authentication()
   {
     when(authentication.getPrincipal())
@@ -0,0 +1,47 @@
+package com.example.tickets;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VirtualThreadConfigTest
+{
+  private static final int JAVA = Runtime.version().feature();
+
+  /**
+   * Link to {@link VirtualThreadConfig#newVirtualThreadPerTaskExecutor}
+   */
+  @Test
+  void executor_RunsOnVirtualThreads() throws Exception
+  {
+    assumeTrue(JAVA >= 21);
+
+    ExecutorService executor = VirtualThreadConfig.newVirtualThreadPerTaskExecutor();
+    try {
+      assertTrue(executor.submit(() -> (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+          .get());
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Link to {@link VirtualThreadConfig#newVirtualThreadPerTaskExecutor}
+   */
+  @Test
+  void executor_NeedsJava21()
+  {
+    assumeTrue(JAVA < 21);
+
+    IllegalStateException thrown = assertThrows(IllegalStateException.class,
+        VirtualThreadConfig::newVirtualThreadPerTaskExecutor);
+    assertEquals("tickets.virtual-threads.enabled needs Java 21 or newer, this is Java " + JAVA + "!",
+        thrown.getMessage());
+  }
+}
@@ -0,0 +1,181 @@
+package com.example.tickets;
+
+import com.example.tickets.enums.CardType;
+import com.example.tickets.enums.Role;
+import com.example.tickets.security.TicketUserDetails;
+import com.example.tickets.security.TokenService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Starts the application once with platform and once with virtual request threads and runs the same load against
+ * {@code GET /available/destinations}, one TicketDao query per request. Prints the throughput and the p99 latency of
+ * both modes.
+ * <p>
+ * Not part of {@code gradle test}, run it with {@code gradle loadTest} on Java 21. The load is set with
+ * {@code -Dload.concurrency} (clients sending requests back to back, 400 by default) and {@code -Dload.duration}
+ * (per mode, PT15S by default). The difference shows once the clients outnumber {@code server.tomcat.threads.max}.
+ */
+@Tag("load")
+class VirtualThreadLoadTest
+{
+  private static final int      CONCURRENCY = Integer.getInteger("load.concurrency", 400);
+  private static final Duration DURATION    = Duration.parse(System.getProperty("load.duration", "PT15S"));
+  private static final Duration WARM_UP     = Duration.ofSeconds(3);
+
+  @java.lang.SuppressWarnings("all")
+  private static final org.apache.logging.log4j.Logger log = org.apache.logging.log4j.LogManager.getLogger(VirtualThreadLoadTest.class);
+
+  @Test
+  void virtualThreads_ComparedToPlatformThreads() throws Exception
+  {
+    assumeTrue(Runtime.version().feature() >= 21, "Virtual threads need Java 21");
+
+    Result platform = run(false);
+    Result virtual = run(true);
+
+    log.info(String.format("%-10s %12s %10s %10s %8s", "mode", "requests/s", "p50 ms", "p99 ms", "errors"));
+    log.info(platform);
+    log.info(virtual);
+
+    assertTrue(platform.requests > 0 && virtual.requests > 0);
+    assertEquals(0, virtual.errors, "The connection pool must queue the requests, not fail them");
+  }
+
+  private static Result run(boolean virtualThreads) throws Exception
+  {
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(TicketsApplication.class)
+        .properties("server.port=0", "tickets.virtual-threads.enabled=" + virtualThreads)
+        .run();
+    try {
+      int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+      //a token needs neither BCrypt nor the users table, only the measured query hits the database
+      String token = context.getBean(TokenService.class)
+          .issue(new TicketUserDetails(1L, "load", "", Role.USER, CardType.NONE))
+          .getToken();
+      HttpRequest request = HttpRequest
+          .newBuilder(URI.create("http://localhost:" + port + "/api/be/ticket/available/destinations"))
+          .header("Authorization", "Bearer " + token)
+          .timeout(Duration.ofSeconds(60))
+          .build();
+
+      load(request, WARM_UP);
+      return load(request, DURATION).mode(virtualThreads ? "virtual" : "platform");
+    }
+    finally {
+      context.close();
+    }
+  }
+
+  private static Result load(HttpRequest request, Duration duration) throws Exception
+  {
+    HttpClient client = HttpClient.newHttpClient();
+    ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+    long end = System.nanoTime() + duration.toNanos();
+
+    List<Future<long[]>> futures = new ArrayList<>();
+    for (int i = 0; i < CONCURRENCY; i++) {
+      futures.add(clients.submit(() -> {
+        //latencies in microseconds, the last slot counts the errors
+        long[] latencies = new long[1024];
+        int count = 0;
+        long errors = 0;
+        while (System.nanoTime() < end) {
+          long started = System.nanoTime();
+          try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (200 != response.statusCode()) {
+              errors++;
+              continue;
+            }
+          }
+          catch (IOException e) {
+            errors++;
+            continue;
+          }
+          if (count == latencies.length - 1) {
+            latencies = Arrays.copyOf(latencies, latencies.length * 2);
+          }
+          latencies[count++] = (System.nanoTime() - started) / 1000;
+        }
+        long[] result = Arrays.copyOf(latencies, count + 1);
+        result[count] = errors;
+        return result;
+      }));
+    }
+
+    List<long[]> perClient = new ArrayList<>();
+    long errors = 0;
+    for (Future<long[]> future : futures) {
+      long[] result = future.get();
+      errors += result[result.length - 1];
+      perClient.add(Arrays.copyOf(result, result.length - 1));
+    }
+    clients.shutdown();
+    clients.awaitTermination(1, TimeUnit.MINUTES);
+
+    long[] all = perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+    return new Result(all, errors, duration);
+  }
+
+  private static final class Result
+  {
+    private final long   requests;
+    private final long   errors;
+    private final double throughput;
+    private final double p50Millis;
+    private final double p99Millis;
+    private       String mode = "";
+
+    Result(long[] sortedMicros, long errors, Duration duration)
+    {
+      this.requests = sortedMicros.length;
+      this.errors = errors;
+      this.throughput = requests * 1000.0 / duration.toMillis();
+      this.p50Millis = percentile(sortedMicros, 0.50);
+      this.p99Millis = percentile(sortedMicros, 0.99);
+    }
+
+    Result mode(String mode)
+    {
+      this.mode = mode;
+      return this;
+    }
+
+    private static double percentile(long[] sortedMicros, double percentile)
+    {
+      if (0 == sortedMicros.length) {
+        return 0;
+      }
+      int index = (int) Math.ceil(percentile * sortedMicros.length) - 1;
+      return sortedMicros[Math.max(0, index)] / 1000.0;
+    }
+
+    @Override
+    public String toString()
+    {
+      return String.format("%-10s %12.1f %10.2f %10.2f %8d", mode, throughput, p50Millis, p99Millis, errors);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.example.tickets.jdbc;
+
+import com.example.tickets.bean.QueryStatistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class InstrumentedNamedParameterJdbcTemplateTest
+{
+  private final JdbcOperations jdbcOperations = mock(JdbcOperations.class);
+  private final QueryMetrics   metrics        = new QueryMetrics(Duration.ofSeconds(1));
+
+  private final InstrumentedNamedParameterJdbcTemplate template =
+      new InstrumentedNamedParameterJdbcTemplate(jdbcOperations, metrics);
+
+  /**
+   * Link to {@link InstrumentedNamedParameterJdbcTemplate#update}
+   */
+  @Test
+  void update_RecordsTheRows()
+  {
+    when(jdbcOperations.update(any(PreparedStatementCreator.class)))
+        .thenReturn(3);
+
+    template.update("UPDATE ticket SET is_pays = 'Y' WHERE user_id = :userId", new MapSqlParameterSource("userId", 1L));
+
+    QueryStatistics statistics = metrics.getStatistics().get(0);
+    assertEquals("update_RecordsTheRows", statistics.getName());
+    assertEquals(1, statistics.getCount());
+    assertEquals(3, statistics.getRows());
+  }
+
+  /**
+   * Link to {@link InstrumentedNamedParameterJdbcTemplate#queryForObject}
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  void queryForObject_IsRecordedOnce()
+  {
+    when(jdbcOperations.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+        .thenReturn(List.of("ADMIN"));
+
+    template.queryForObject("SELECT role FROM users WHERE id = :userId", new MapSqlParameterSource("userId", 1L),
+        String.class);
+
+    List<QueryStatistics> statistics = metrics.getStatistics();
+    assertEquals(1, statistics.size());
+    assertEquals(1, statistics.get(0).getCount());
+  }
+
+  /**
+   * Link to {@link InstrumentedNamedParameterJdbcTemplate#query}
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  void query_RecordsTheRowsReadByTheExtractor() throws Exception
+  {
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.next()).thenReturn(true, true, true, false);
+    when(jdbcOperations.query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class)))
+        .thenAnswer(invocation -> invocation.<ResultSetExtractor<?>>getArgument(1).extractData(rs));
+
+    ResultSetExtractor<Integer> countTowns = result -> {
+      int towns = 0;
+      while (result.next()) {
+        towns++;
+      }
+      return towns;
+    };
+    template.query("SELECT town1, town2 FROM train", new MapSqlParameterSource(), countTowns);
+
+    assertEquals(3, metrics.getStatistics().get(0).getRows());
+  }
+
+  /**
+   * Link to {@link InstrumentedNamedParameterJdbcTemplate#update}
+   */
+  @Test
+  void update_RecordsTheError()
+  {
+    when(jdbcOperations.update(any(PreparedStatementCreator.class)))
+        .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+    Assertions.assertThrows(DataAccessResourceFailureException.class,
+        () -> template.update("DELETE FROM ticket WHERE id = :id", new MapSqlParameterSource("id", 1L)));
+
+    assertEquals(1, metrics.getStatistics().get(0).getErrors());
+  }
+}
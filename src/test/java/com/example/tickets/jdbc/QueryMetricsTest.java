@@ -0,0 +1,52 @@
+package com.example.tickets.jdbc;
+
+import com.example.tickets.bean.QueryStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueryMetricsTest
+{
+  /**
+   * Link to {@link QueryMetrics#nameOf}
+   */
+  @Test
+  void nameOf_IsTheMethodThatRunsTheStatement()
+  {
+    QueryMetrics metrics = new QueryMetrics(Duration.ofSeconds(1));
+
+    assertEquals("nameOf_IsTheMethodThatRunsTheStatement", metrics.nameOf("SELECT 1"));
+    assertEquals("nameOf_IsTheMethodThatRunsTheStatement", metrics.nameOf("SELECT 1"));
+  }
+
+  /**
+   * Link to {@link QueryMetrics#getStatistics}
+   */
+  @Test
+  void getStatistics()
+  {
+    QueryMetrics metrics = new QueryMetrics(Duration.ofSeconds(1));
+    for (int i = 0; i < 99; i++) {
+      metrics.record("findByUsername", 800_000, 1, false);
+    }
+    metrics.record("findByUsername", 40_000_000, 0, true);
+    metrics.record("loadTrains", 2_000_000_000L, 120, false);
+
+    List<QueryStatistics> statistics = metrics.getStatistics();
+
+    assertEquals("loadTrains", statistics.get(0).getName());
+    QueryStatistics findByUsername = statistics.get(1);
+    assertEquals(100, findByUsername.getCount());
+    assertEquals(1, findByUsername.getErrors());
+    assertEquals(99, findByUsername.getRows());
+    assertEquals(1.0, findByUsername.getP50Millis());
+    assertEquals(1.0, findByUsername.getP95Millis());
+    assertEquals(1.0, findByUsername.getP99Millis());
+    assertEquals(40.0, findByUsername.getMaxMillis());
+    assertEquals(99, (long) findByUsername.getHistogram().get("<=1.0ms"));
+    assertEquals(1, (long) findByUsername.getHistogram().get("<=50.0ms"));
+  }
+}
@@ -0,0 +1,139 @@
+package com.example.tickets.jdbc;
+
+import com.example.tickets.bean.DataSourceStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.*;
+
+/**
+ * The primary and the replica are two embedded H2 databases, each one knows its own name.
+ */
+class RoutingDataSourceTest
+{
+  private final EmbeddedDatabase      primary = database("primary");
+  private final EmbeddedDatabase      replica = database("replica");
+  private final AtomicReference<Long> lag     = new AtomicReference<>(0L);
+  private final RoutingDataSource     routing =
+      new RoutingDataSource(primary, Map.of("replica-1", replica), Duration.ofSeconds(5), dataSource -> lag.get());
+  private final JdbcTemplate          jdbcTemplate;
+  private final TransactionTemplate   transactionTemplate;
+
+  RoutingDataSourceTest()
+  {
+    routing.afterPropertiesSet();
+    LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+  }
+
+  @AfterEach
+  void shutdown()
+  {
+    primary.shutdown();
+    replica.shutdown();
+  }
+
+  @Test
+  void readOnlyTransaction_GoesToTheReplica()
+  {
+    assertEquals("replica", name(true));
+    assertEquals("primary", name(false));
+  }
+
+  @Test
+  void withoutTransaction_GoesToThePrimary()
+  {
+    assertEquals("primary", jdbcTemplate.queryForObject("SELECT name FROM instance", String.class));
+  }
+
+  @Test
+  void laggingReplica_FallsBackToThePrimary()
+  {
+    lag.set(30L);
+    routing.checkReplicas();
+    assertEquals("primary", name(true));
+
+    lag.set(null);
+    routing.checkReplicas();
+    assertEquals("primary", name(true));
+
+    lag.set(1L);
+    routing.checkReplicas();
+    assertEquals("replica", name(true));
+  }
+
+  @Test
+  void failingLagCheck_FallsBackToThePrimary()
+  {
+    RoutingDataSource unreachable = new RoutingDataSource(primary, Map.of("replica-1", replica), Duration.ofSeconds(5),
+        dataSource -> {
+          throw new IllegalStateException("Connection refused");
+        });
+    unreachable.afterPropertiesSet();
+
+    assertFalse(unreachable.getStatistics().get(1).isHealthy());
+  }
+
+  @Test
+  void statistics_CountTheConnectionsOfEveryPool()
+  {
+    name(true);
+    name(true);
+    name(false);
+
+    List<DataSourceStatistics> statistics = routing.getStatistics();
+    assertEquals("primary", statistics.get(0).getName());
+    assertEquals(1, statistics.get(0).getConnections());
+    assertEquals("replica-1", statistics.get(1).getName());
+    assertEquals(2, statistics.get(1).getConnections());
+    assertEquals(0L, statistics.get(1).getLagSeconds());
+  }
+
+  @Test
+  void destroy_ClosesOnlyTheReplicas() throws Exception
+  {
+    DataSource pool = mock(DataSource.class, withSettings().extraInterfaces(AutoCloseable.class));
+    DataSource primaryPool = mock(DataSource.class, withSettings().extraInterfaces(AutoCloseable.class));
+    RoutingDataSource closing = new RoutingDataSource(primaryPool, Map.of("replica-1", pool), Duration.ofSeconds(5),
+        dataSource -> 0L);
+
+    closing.destroy();
+
+    verify((AutoCloseable) pool).close();
+    verify((AutoCloseable) primaryPool, never()).close();
+  }
+
+  private String name(boolean readOnly)
+  {
+    transactionTemplate.setReadOnly(readOnly);
+    return transactionTemplate.execute(
+        status -> jdbcTemplate.queryForObject("SELECT name FROM instance", String.class));
+  }
+
+  private static EmbeddedDatabase database(String name)
+  {
+    EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+        .setType(EmbeddedDatabaseType.H2)
+        .setName(name)
+        .build();
+    new JdbcTemplate(database).execute("CREATE TABLE instance (name VARCHAR(16))");
+    new JdbcTemplate(database).update("INSERT INTO instance VALUES (?)", name);
+    return database;
+  }
+}
@@ -0,0 +1,48 @@
+package com.example.tickets.jdbc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StreamingJdbcTemplateTest
+{
+  private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+      .setType(EmbeddedDatabaseType.H2)
+      .setName("streaming")
+      .build();
+
+  @AfterEach
+  void shutdown()
+  {
+    database.shutdown();
+  }
+
+  /**
+   * Link to {@link StreamingJdbcTemplate#applyStatementSettings}
+   */
+  @Test
+  void query_UsesAPositiveFetchSize_IfTheDatabaseIsNotMySql()
+  {
+    new JdbcTemplate(database).execute("CREATE TABLE town (name VARCHAR(16))");
+    new JdbcTemplate(database).update("INSERT INTO town VALUES ('Sofia'), ('Varna')");
+
+    List<String> towns = new ArrayList<>();
+    List<Integer> fetchSizes = new ArrayList<>();
+    new StreamingJdbcTemplate(database).query("SELECT name FROM town ORDER BY name", (RowCallbackHandler) rs -> {
+      towns.add(rs.getString("name"));
+      fetchSizes.add(rs.getStatement().getFetchSize());
+    });
+
+    assertEquals(List.of("Sofia", "Varna"), towns);
+    assertEquals(StreamingJdbcTemplate.FETCH_SIZE, fetchSizes.get(0));
+  }
+}
@@ -0,0 +1,169 @@
+package com.example.tickets.network;
+
+import com.example.tickets.TicketDao;
+import com.example.tickets.bean.DestinationInfo;
+import com.example.tickets.bean.ImportError;
+import com.example.tickets.bean.ImportResult;
+import com.example.tickets.enums.DestinationFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class DestinationImporterTest
+{
+  private TicketDao                   dao;
+  private DestinationImporter         importer;
+  private List<List<DestinationInfo>> batches;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp()
+  {
+    dao = mock(TicketDao.class);
+    batches = new ArrayList<>();
+    //every route is new
+    when(dao.upsertDestinations(anyList())).thenAnswer(invocation -> {
+      List<DestinationInfo> batch = invocation.getArgument(0);
+      batches.add(batch);
+      return batch.size();
+    });
+    importer = new DestinationImporter(dao, new ObjectMapper(), 2);
+  }
+
+  /**
+   * Link to {@link DestinationImporter#importDestinations}
+   */
+  @Test
+  void csv_IsImportedInBatches()
+  {
+    ImportResult result = importer.importDestinations(body("" +
+        "town1,town2,distance,initialPrice\n" +
+        "Sofia,Varna,440,30.50\n" +
+        "\"Stara Zagora\",Plovdiv,100,10\n" +
+        "\n" +
+        "Sofia,Burgas,380,25\n"), DestinationFormat.CSV);
+
+    assertEquals(3, result.getInserted());
+    assertEquals(0, result.getRejected());
+    assertEquals(2, batches.size());
+    assertEquals("Stara Zagora", batches.get(0).get(1).getTown1());
+    assertEquals(new BigDecimal("30.50"), batches.get(0).get(0).getInitialPrice());
+  }
+
+  /**
+   * Link to {@link DestinationImporter#importDestinations}
+   */
+  @Test
+  void invalidRows_AreReportedWithTheirLine()
+  {
+    ImportResult result = importer.importDestinations(body("" +
+        "Sofia,Varna,440\n" +
+        "Sofia,Sofia,10,1\n" +
+        "Sofia,Varna,-1,30\n" +
+        "Sofia,Varna,440,30.505\n" +
+        "Sofia,Varna,abc,30\n" +
+        "Sofia,Varna,440,30\n"), DestinationFormat.CSV);
+
+    assertEquals(1, result.getInserted());
+    assertEquals(5, result.getRejected());
+    assertEquals(List.of(1, 2, 3, 4, 5),
+        result.getErrors().stream().map(ImportError::getLine).collect(Collectors.toList()));
+    assertEquals("Invalid distance: abc!", result.getErrors().get(4).getMessage());
+  }
+
+  /**
+   * Link to {@link DestinationImporter#importDestinations}
+   */
+  @Test
+  void jsonLines_AreImported()
+  {
+    ImportResult result = importer.importDestinations(body("" +
+        "{\"town1\": \"Sofia\", \"town2\": \"Varna\", \"distance\": 440, \"initialPrice\": \"30.50\"}\n" +
+        "{\"town1\": \"Sofia\"}\n" +
+        "not json\n"), DestinationFormat.JSON_LINES);
+
+    assertEquals(1, result.getInserted());
+    assertEquals(2, result.getRejected());
+    assertEquals("Invalid JSON!", result.getErrors().get(1).getMessage());
+  }
+
+  /**
+   * Link to {@link DestinationImporter#importDestinations}
+   */
+  @Test
+  void sameRouteTwice_LastRowWins()
+  {
+    ImportResult result = importer.importDestinations(body("" +
+        "Sofia,Varna,440,30\n" +
+        "Sofia,Varna,440,35\n"), DestinationFormat.CSV);
+
+    assertEquals(1, result.getInserted());
+    assertEquals(1, result.getUpdated());
+    assertEquals(1, batches.size());
+    assertEquals(new BigDecimal("35"), batches.get(0).get(0).getInitialPrice());
+  }
+
+  /**
+   * Link to {@link DestinationImporter#importDestinations}
+   */
+  @Test
+  void sameRouteInAnotherCase_LastRowWins()
+  {
+    ImportResult result = importer.importDestinations(body("" +
+        "Sofia,Varna,440,30\n" +
+        "SOFIA,varna,440,35\n"), DestinationFormat.CSV);
+
+    assertEquals(1, result.getInserted());
+    assertEquals(1, result.getUpdated());
+    assertEquals(1, batches.get(0).size());
+    assertEquals("SOFIA", batches.get(0).get(0).getTown1());
+  }
+
+  /**
+   * Link to {@link DestinationImporter#importDestinations}
+   */
+  @Test
+  void csv_QuotedFieldsMayHoldCommasAndQuotes()
+  {
+    ImportResult result = importer.importDestinations(body("" +
+        "\"Sofia, Center\",\"Varna \"\"Port\"\"\",440,30\n" +
+        "\"Sofia, Center,Varna,440,30\n" +
+        "\"Sofia\" Center,Varna,440,30\n"), DestinationFormat.CSV);
+
+    assertEquals(1, result.getInserted());
+    assertEquals("Sofia, Center", batches.get(0).get(0).getTown1());
+    assertEquals("Varna \"Port\"", batches.get(0).get(0).getTown2());
+    assertEquals(2, result.getRejected());
+    assertEquals("A quoted field is not closed!", result.getErrors().get(0).getMessage());
+    assertEquals("Unexpected text after a quoted field!", result.getErrors().get(1).getMessage());
+  }
+
+  /**
+   * Link to {@link DestinationImporter#importDestinations}
+   */
+  @Test
+  void noValidRow_TouchesNoTable()
+  {
+    ImportResult result = importer.importDestinations(body("town1,town2,distance,initialPrice\n"),
+        DestinationFormat.CSV);
+
+    assertEquals(0, result.getInserted() + result.getUpdated());
+    verify(dao, never()).upsertDestinations(anyList());
+  }
+
+  private static BufferedReader body(String text)
+  {
+    return new BufferedReader(new StringReader(text));
+  }
+}
@@ -0,0 +1,57 @@
+package com.example.tickets.network;
+
+import com.example.tickets.TicketDao;
+import com.example.tickets.bean.Train;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class FareMatrixTest
+{
+  /**
+   * Link to {@link FareMatrix.Snapshot#find}
+   */
+  @Test
+  void find_IgnoresTheCaseOfTheTowns()
+  {
+    FareMatrix.Snapshot snapshot = snapshot(train(1L, "Sofia", "Varna", 10));
+
+    assertEquals(1L, snapshot.find("sofia", "VARNA").getId());
+    assertEquals(0, snapshot.indexOf("SOFIA"));
+  }
+
+  /**
+   * Link to {@link FareMatrix.Snapshot#find}
+   */
+  @Test
+  void find_KeepsTheFirstRow_IfTheTownsDifferOnlyInCase()
+  {
+    FareMatrix.Snapshot snapshot = snapshot(train(1L, "Sofia", "Varna", 10), train(2L, "SOFIA", "varna", 20));
+
+    assertEquals(1L, snapshot.find("Sofia", "Varna").getId());
+    assertEquals(List.of("Sofia", "Varna"), snapshot.getTowns());
+  }
+
+  private static FareMatrix.Snapshot snapshot(Train... trains)
+  {
+    TicketDao dao = mock(TicketDao.class);
+    when(dao.loadTrains()).thenReturn(List.of(trains));
+    return new FareMatrix(dao, event -> { }).snapshot();
+  }
+
+  private static Train train(Long id, String town1, String town2, int price)
+  {
+    return Train
+        .builder()
+        .id(id)
+        .town1(town1)
+        .town2(town2)
+        .distance(100)
+        .initialPrice(BigDecimal.valueOf(price))
+        .build();
+  }
+}
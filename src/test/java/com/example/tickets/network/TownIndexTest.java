@@ -0,0 +1,98 @@
+package com.example.tickets.network;
+
+import com.example.tickets.TicketDao;
+import com.example.tickets.bean.Train;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class TownIndexTest
+{
+  private TicketDao   dao;
+  private FareMatrix  fareMatrix;
+  private TownIndex   townIndex;
+  private List<Train> trains;
+
+  @BeforeEach
+  void setUp()
+  {
+    dao = mock(TicketDao.class);
+    trains = new ArrayList<>();
+    trains.add(train("Sofia", "Varna"));
+    trains.add(train("Stara Zagora", "Plovdiv"));
+    trains.add(train("Sliven", "\u0160umen"));
+    when(dao.loadTrains()).thenAnswer(invocation -> new ArrayList<>(trains));
+
+    fareMatrix = new FareMatrix(dao, event -> townIndex.onFaresRefreshed((FaresRefreshedEvent) event));
+    townIndex = new TownIndex(fareMatrix);
+  }
+
+  /**
+   * Link to {@link TownIndex#search}
+   */
+  @Test
+  void search_IgnoresCaseAndDiacritics()
+  {
+    assertEquals(List.of("Sliven", "Sofia", "Stara Zagora", "\u0160umen"), townIndex.search("s", 10));
+    assertEquals(List.of("\u0160umen"), townIndex.search("SU", 10));
+    assertEquals(List.of("Stara Zagora"), townIndex.search("stara z", 10));
+    assertEquals(List.of(), townIndex.search("Ruse", 10));
+  }
+
+  /**
+   * Link to {@link TownIndex#search}
+   */
+  @Test
+  void search_ReturnsAtMostLimitTowns()
+  {
+    assertEquals(List.of("Sliven", "Sofia"), townIndex.search("s", 2));
+  }
+
+  /**
+   * Link to {@link TownIndex#onFaresRefreshed}
+   */
+  @Test
+  void onFaresRefreshed_AddsTheNewTowns()
+  {
+    townIndex.search("s", 10);
+    trains.add(train("Sofia", "Samokov"));
+    trains.add(train("Ruse", "Varna"));
+
+    fareMatrix.refresh();
+
+    assertEquals(List.of("Samokov", "Sliven", "Sofia", "Stara Zagora", "\u0160umen"), townIndex.search("s", 10));
+    assertEquals(List.of("Ruse"), townIndex.search("r", 10));
+    verify(dao, times(2)).loadTrains();
+  }
+
+  /**
+   * Link to {@link TownIndex#onFaresRefreshed}
+   */
+  @Test
+  void onFaresRefreshed_DropsRemovedTowns()
+  {
+    townIndex.search("s", 10);
+    trains.remove(2);
+
+    fareMatrix.refresh();
+
+    assertEquals(List.of("Sofia", "Stara Zagora"), townIndex.search("s", 10));
+  }
+
+  private static Train train(String town1, String town2)
+  {
+    return Train
+        .builder()
+        .town1(town1)
+        .town2(town2)
+        .distance(100)
+        .initialPrice(BigDecimal.TEN)
+        .build();
+  }
+}
@@ -0,0 +1,137 @@
+package com.example.tickets.pricing;
+
+import com.example.tickets.enums.CardType;
+import com.example.tickets.enums.TimeBand;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DiscountEngineTest
+{
+  private static final List<BigDecimal> PRICES = Arrays.asList(
+      new BigDecimal("0.00"), new BigDecimal("0.01"), BigDecimal.TEN, new BigDecimal("13.37"),
+      new BigDecimal("123.456"));
+
+  private final DiscountEngine engine = new DiscountEngine();
+
+  /**
+   * Link to {@link DiscountEngine#getTimeBand}
+   */
+  @Test
+  void getTimeBand_BoundsAreStillPeakTime()
+  {
+    assertEquals(TimeBand.PEAK, engine.getTimeBand(LocalTime.parse("09:35:00")));
+    assertEquals(TimeBand.OFF_PEAK, engine.getTimeBand(LocalTime.parse("09:35:00").plusNanos(1)));
+    assertEquals(TimeBand.OFF_PEAK, engine.getTimeBand(LocalTime.parse("16:00:00").minusNanos(1)));
+    assertEquals(TimeBand.PEAK, engine.getTimeBand(LocalTime.parse("16:00:00")));
+    assertEquals(TimeBand.PEAK, engine.getTimeBand(LocalTime.parse("19:30:00")));
+    assertEquals(TimeBand.OFF_PEAK, engine.getTimeBand(LocalTime.parse("19:30:00").plusNanos(1)));
+    assertEquals(TimeBand.OFF_PEAK, engine.getTimeBand(LocalTime.MAX));
+    assertEquals(TimeBand.PEAK, engine.getTimeBand(LocalTime.MIDNIGHT));
+  }
+
+  /**
+   * Every second of the day and every band bound, for every card type and child flag.
+   */
+  @Test
+  void applyDiscount_MatchesTheOldBranchChain_ForEveryTimeOfTheDay()
+  {
+    List<LocalTime> times = new ArrayList<>();
+    for (int second = 0; second < 24 * 60 * 60; second++) {
+      times.add(LocalTime.ofSecondOfDay(second));
+    }
+    for (DiscountEngine.BandStart bandStart : DiscountEngine.BANDS) {
+      times.add(bandStart.getStart().minusNanos(1));
+      times.add(bandStart.getStart().plusNanos(1));
+    }
+
+    for (LocalTime time : times) {
+      for (CardType typeOfCard : CardType.values()) {
+        for (boolean isThereChild : new boolean[]{false, true}) {
+          for (BigDecimal price : PRICES) {
+            assertIdentical(price, time, isThereChild, typeOfCard);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Every price from 0.00 to 100.00 in every cell of the rule table.
+   */
+  @Test
+  void applyDiscount_MatchesTheOldBranchChain_ForEveryPrice()
+  {
+    List<LocalTime> times = Arrays.asList(LocalTime.parse("08:00:00"), LocalTime.parse("12:00:00"),
+        LocalTime.parse("17:38:00"), LocalTime.parse("21:00:00"));
+
+    for (int cents = 0; cents <= 100_00; cents++) {
+      BigDecimal price = BigDecimal.valueOf(cents, 2);
+      for (LocalTime time : times) {
+        for (CardType typeOfCard : CardType.values()) {
+          for (boolean isThereChild : new boolean[]{false, true}) {
+            assertIdentical(price, time, isThereChild, typeOfCard);
+            BigDecimal stripped = price.stripTrailingZeros();
+            if (stripped.scale() >= 0) {
+              assertIdentical(stripped, time, isThereChild, typeOfCard);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private void assertIdentical(BigDecimal price, LocalTime time, boolean isThereChild, CardType typeOfCard)
+  {
+    BigDecimal expected = oldDiscountForTickets(price, time, isThereChild, typeOfCard.toString());
+    BigDecimal actual = engine.applyDiscount(price, time, isThereChild, typeOfCard);
+
+    // equals() on BigDecimal compares the scale as well
+    assertEquals(expected, actual, () -> price + " " + time + " " + isThereChild + " " + typeOfCard);
+  }
+
+  /**
+   * The branch chain TicketService used before the rule table, kept as the reference implementation.
+   */
+  private static BigDecimal oldDiscountForTickets(BigDecimal priceOfTicket, LocalTime diapasonTime,
+                                                  boolean isThereChild, String typeOfCard)
+  {
+    BigDecimal discount1 = BigDecimal.ZERO;
+    if (diapasonTime.isAfter(LocalTime.parse("09:35:00"))
+        && diapasonTime.isBefore(LocalTime.parse("16:00:00"))
+        || diapasonTime.isAfter(LocalTime.parse("19:30:00"))
+    ) {
+      discount1 = priceOfTicket.multiply(BigDecimal.valueOf(5)).divide(BigDecimal.valueOf(100), RoundingMode.CEILING);
+    }
+
+    BigDecimal discount2 = BigDecimal.ZERO;
+    if (isThereChild) {
+      if (CardType.FAMILY.toString().equals(typeOfCard)) {
+        discount2 = priceOfTicket.multiply(BigDecimal.valueOf(50)).divide(BigDecimal.valueOf(100), RoundingMode.CEILING);
+      }
+      else if (CardType.ELDERLY.toString().equals(typeOfCard)) {
+        discount2 = priceOfTicket.multiply(BigDecimal.valueOf(34)).divide(BigDecimal.valueOf(100), RoundingMode.CEILING);
+      }
+      else if (CardType.NONE.toString().equals(typeOfCard)) {
+        discount2 = priceOfTicket.multiply(BigDecimal.valueOf(10)).divide(BigDecimal.valueOf(100), RoundingMode.CEILING);
+      }
+    }
+    else {
+      if (CardType.ELDERLY.toString().equals(typeOfCard)) {
+        discount2 = priceOfTicket.multiply(BigDecimal.valueOf(34)).divide(BigDecimal.valueOf(100), RoundingMode.CEILING);
+      }
+    }
+
+    if (discount2.compareTo(discount1) >= 0) {
+      return priceOfTicket.subtract(discount2);
+    }
+    return priceOfTicket.subtract(discount1);
+  }
+}
@@ -0,0 +1,77 @@
+package com.example.tickets.pricing;
+
+import com.example.tickets.bean.CacheStatistics;
+import com.example.tickets.enums.CardType;
+import com.example.tickets.enums.TimeBand;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class QuoteCacheTest
+{
+  /**
+   * Link to {@link QuoteCache#put}
+   */
+  @Test
+  void put_EvictsTheLeastRecentlyUsedQuote()
+  {
+    QuoteCache cache = new QuoteCache(2);
+    long generation = cache.getGeneration();
+
+    cache.put(key("Varna"), BigDecimal.ONE, generation);
+    cache.put(key("Burgas"), BigDecimal.TEN, generation);
+    cache.get(key("Varna"));
+    cache.put(key("Ruse"), BigDecimal.ZERO, generation);
+
+    assertNull(cache.get(key("Burgas")));
+    assertEquals(BigDecimal.ONE, cache.get(key("Varna")));
+
+    CacheStatistics statistics = cache.getStatistics();
+    assertEquals(1, statistics.getEvictions());
+    assertEquals(2, statistics.getHits());
+    assertEquals(1, statistics.getMisses());
+    assertEquals(2, statistics.getSize());
+  }
+
+  /**
+   * Link to {@link QuoteCache#put}
+   */
+  @Test
+  void put_EvictsAnEighthOfTheQuotesAtOnce()
+  {
+    QuoteCache cache = new QuoteCache(16);
+    long generation = cache.getGeneration();
+
+    for (int i = 0; i <= 16; i++) {
+      cache.put(key("Town " + i), BigDecimal.ONE, generation);
+    }
+
+    CacheStatistics statistics = cache.getStatistics();
+    assertEquals(14, statistics.getSize());
+    assertEquals(3, statistics.getEvictions());
+    assertEquals(BigDecimal.ONE, cache.get(key("Town 16")));
+  }
+
+  /**
+   * Link to {@link QuoteCache#invalidate}
+   */
+  @Test
+  void put_IgnoresQuotesComputedBeforeTheLastInvalidation()
+  {
+    QuoteCache cache = new QuoteCache(10);
+    long generation = cache.getGeneration();
+
+    cache.invalidate();
+    cache.put(key("Varna"), BigDecimal.ONE, generation);
+
+    assertNull(cache.get(key("Varna")));
+  }
+
+  private static QuoteCache.Key key(String townTo)
+  {
+    return new QuoteCache.Key("Sofia", townTo, "ONE_WAY_TRIP", CardType.NONE, false, TimeBand.PEAK);
+  }
+}
@@ -0,0 +1,57 @@
+package com.example.tickets.reservation;
+
+import com.example.tickets.TicketDao;
+import com.example.tickets.bean.SweepStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ExpiredReservationSweeperTest
+{
+  /**
+   * Link to {@link ExpiredReservationSweeper#sweep}
+   */
+  @Test
+  void sweep_DeletesInBatchesUntilABatchIsNotFull()
+  {
+    TicketDao dao = mock(TicketDao.class);
+    when(dao.removeExpiredReservations(any(LocalDateTime.class), eq(2)))
+        .thenReturn(2, 2, 1);
+
+    ExpiredReservationSweeper sweeper = new ExpiredReservationSweeper(dao, new SeatCapacityTracker(dao, Duration.ofMinutes(1)), 2, 10);
+    sweeper.sweep();
+
+    verify(dao, times(3)).removeExpiredReservations(any(LocalDateTime.class), eq(2));
+    SweepStatistics statistics = sweeper.getStatistics();
+    assertEquals(1, statistics.getRuns());
+    assertEquals(5, statistics.getLastRunRowsSwept());
+    assertEquals(5, statistics.getTotalRowsSwept());
+  }
+
+  /**
+   * Link to {@link ExpiredReservationSweeper#sweep}
+   */
+  @Test
+  void sweep_StopsAfterMaxBatches()
+  {
+    TicketDao dao = mock(TicketDao.class);
+    when(dao.removeExpiredReservations(any(LocalDateTime.class), eq(2)))
+        .thenReturn(2);
+
+    ExpiredReservationSweeper sweeper = new ExpiredReservationSweeper(dao, new SeatCapacityTracker(dao, Duration.ofMinutes(1)), 2, 3);
+    sweeper.sweep();
+    sweeper.sweep();
+
+    verify(dao, times(6)).removeExpiredReservations(any(LocalDateTime.class), eq(2));
+    SweepStatistics statistics = sweeper.getStatistics();
+    assertEquals(2, statistics.getRuns());
+    assertEquals(6, statistics.getLastRunRowsSwept());
+    assertEquals(12, statistics.getTotalRowsSwept());
+  }
+}
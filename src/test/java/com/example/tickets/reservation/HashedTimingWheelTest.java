@@ -0,0 +1,92 @@
+package com.example.tickets.reservation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedTimingWheelTest
+{
+  /**
+   * Link to {@link HashedTimingWheel#advance}
+   */
+  @Test
+  void advance_ExpiresOnlyPassedDeadlines()
+  {
+    HashedTimingWheel wheel = new HashedTimingWheel(1000, 8, 0);
+    wheel.schedule(1L, 2500);
+    wheel.schedule(2L, 20_000);
+
+    List<Long> expired = new ArrayList<>();
+    wheel.advance(2999, expired);
+    assertEquals(List.of(), expired);
+
+    wheel.advance(3000, expired);
+    assertEquals(List.of(1L), expired);
+
+    // 20 seconds are more than two turns of an 8 slot wheel
+    wheel.advance(19_999, expired);
+    assertEquals(List.of(1L), expired);
+    wheel.advance(20_000, expired);
+    assertEquals(List.of(1L, 2L), expired);
+    assertEquals(0, wheel.size());
+  }
+
+  /**
+   * Link to {@link HashedTimingWheel#advance}
+   */
+  @Test
+  void advance_AfterALongPauseExpiresEveryPassedDeadline()
+  {
+    HashedTimingWheel wheel = new HashedTimingWheel(1000, 4, 0);
+    for (long id = 0; id < 40; id++) {
+      wheel.schedule(id, id * 1000);
+    }
+
+    List<Long> expired = new ArrayList<>();
+    wheel.advance(25_000, expired);
+
+    assertEquals(26, expired.size());
+    assertEquals(14, wheel.size());
+    assertFalse(expired.contains(26L));
+  }
+
+  /**
+   * Link to {@link HashedTimingWheel#cancel}
+   */
+  @Test
+  void cancel_RemovesTheDeadline()
+  {
+    HashedTimingWheel wheel = new HashedTimingWheel(1000, 8, 0);
+    wheel.schedule(1L, 1000);
+    wheel.schedule(2L, 1000);
+
+    assertTrue(wheel.cancel(1L));
+    assertFalse(wheel.cancel(1L));
+
+    List<Long> expired = new ArrayList<>();
+    wheel.advance(5000, expired);
+    assertEquals(List.of(2L), expired);
+  }
+
+  /**
+   * Link to {@link HashedTimingWheel#schedule}
+   */
+  @Test
+  void schedule_ReplacesThePreviousDeadline()
+  {
+    HashedTimingWheel wheel = new HashedTimingWheel(1000, 8, 0);
+    wheel.schedule(1L, 1000);
+    wheel.schedule(1L, 30_000);
+
+    List<Long> expired = new ArrayList<>();
+    wheel.advance(29_000, expired);
+    assertEquals(List.of(), expired);
+    wheel.advance(30_000, expired);
+    assertEquals(List.of(1L), expired);
+  }
+}
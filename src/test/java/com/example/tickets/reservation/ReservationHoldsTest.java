@@ -0,0 +1,60 @@
+package com.example.tickets.reservation;
+
+import com.example.tickets.TicketDao;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ReservationHoldsTest
+{
+  private final Clock clock = Clock.fixed(Instant.parse("2023-04-14T10:00:00Z"), ZoneId.of("UTC"));
+
+  /**
+   * Link to {@link ReservationHolds#expire}
+   */
+  @Test
+  void expire_RemovesExpiredTicketsInBatches()
+  {
+    TicketDao dao = mock(TicketDao.class);
+    ReservationHolds holds = new ReservationHolds(dao, Duration.ofSeconds(1), 2, clock);
+    LocalDateTime now = LocalDateTime.now(clock);
+
+    holds.hold(List.of(1L, 2L, 3L), now.minusMinutes(1));
+    holds.hold(List.of(4L), now.plusDays(7));
+    holds.expire();
+
+    verify(dao, times(2)).removeExpiredHolds(any(), eq(now));
+    assertEquals(1, holds.size());
+  }
+
+  /**
+   * Link to {@link ReservationHolds#rebuild}
+   */
+  @Test
+  void rebuild_SchedulesTheUnpaidTickets()
+  {
+    TicketDao dao = mock(TicketDao.class);
+    LocalDateTime now = LocalDateTime.now(clock);
+    doAnswer(invocation -> {
+      BiConsumer<Long, LocalDateTime> consumer = invocation.getArgument(0);
+      consumer.accept(1L, now.plusDays(1));
+      consumer.accept(2L, now.plusDays(2));
+      return null;
+    }).when(dao).loadUnpaidHolds(any());
+
+    ReservationHolds holds = new ReservationHolds(dao, Duration.ofSeconds(1), 500, clock);
+    holds.rebuild();
+
+    assertEquals(2, holds.size());
+  }
+}
@@ -0,0 +1,82 @@
+package com.example.tickets.reservation;
+
+import com.example.tickets.TicketDao;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class SeatCapacityTrackerTest
+{
+  private static final LocalDate DAY = LocalDate.parse("2023-04-07");
+
+  private TicketDao dao;
+
+  @BeforeEach
+  void setUp()
+  {
+    dao = mock(TicketDao.class);
+    when(dao.reserveSeats(anyLong(), any(), anyInt()))
+        .thenReturn(true);
+  }
+
+  /**
+   * Link to {@link SeatCapacityTracker#evictBefore}
+   */
+  @Test
+  void evictBefore_DropsOnlyThePastDepartures()
+  {
+    when(dao.loadFreeSeats(anyLong(), any()))
+        .thenReturn(10);
+    SeatCapacityTracker tracker = new SeatCapacityTracker(dao, Duration.ofMinutes(1));
+    tracker.reserve(1L, DAY.minusDays(1), 1);
+    tracker.reserve(1L, DAY, 1);
+    tracker.reserve(2L, DAY.plusDays(1), 1);
+
+    assertEquals(1, tracker.evictBefore(DAY));
+
+    assertEquals(2, tracker.size());
+  }
+
+  /**
+   * Link to {@link SeatCapacityTracker#reserve}
+   */
+  @Test
+  void reserve_ReadsAnUnlimitedTrainAgain_AfterTheTtl()
+  {
+    when(dao.loadFreeSeats(anyLong(), any()))
+        .thenReturn(null, 1);
+    SeatCapacityTracker tracker = new SeatCapacityTracker(dao, Duration.ZERO);
+
+    tracker.reserve(1L, DAY, 5);
+    //the train got a seat limit in the meantime
+    Assertions.assertThrows(IllegalArgumentException.class, () -> tracker.reserve(1L, DAY, 5));
+
+    verify(dao, never()).reserveSeats(anyLong(), any(), anyInt());
+  }
+
+  /**
+   * Link to {@link SeatCapacityTracker#release}
+   */
+  @Test
+  void release_GivesTheSeatsBack()
+  {
+    when(dao.loadFreeSeats(anyLong(), any()))
+        .thenReturn(2);
+    SeatCapacityTracker tracker = new SeatCapacityTracker(dao, Duration.ofMinutes(1));
+    tracker.reserve(1L, DAY, 2);
+
+    tracker.release(1L, DAY, 1);
+    tracker.reserve(1L, DAY, 1);
+
+    verify(dao, times(1)).loadFreeSeats(anyLong(), any());
+  }
+}
@@ -0,0 +1,67 @@
+package com.example.tickets.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkPasswordEncoderTest
+{
+  private final Set<String>           threads = ConcurrentHashMap.newKeySet();
+  private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder()
+  {
+    @Override
+    public String encode(CharSequence rawPassword)
+    {
+      threads.add(Thread.currentThread().getName());
+      return "hash-" + rawPassword;
+    }
+  };
+  private final BulkPasswordEncoder   bulkEncoder = new BulkPasswordEncoder(encoder, 4);
+
+  @AfterEach
+  void shutdown()
+  {
+    bulkEncoder.shutdown();
+  }
+
+  /**
+   * Link to {@link BulkPasswordEncoder#encodeAll}
+   */
+  @Test
+  void encodeAll_KeepsTheOrder()
+  {
+    List<String> passwords = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      passwords.add("password" + i);
+    }
+
+    List<String> hashes = bulkEncoder.encodeAll(passwords);
+
+    assertEquals(1000, hashes.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals("hash-password" + i, hashes.get(i));
+    }
+  }
+
+  /**
+   * Link to {@link BulkPasswordEncoder#encodeAll}
+   */
+  @Test
+  void encodeAll_RunsOnItsOwnPool()
+  {
+    bulkEncoder.encodeAll(List.of("a", "b", "c", "d", "e", "f", "g", "h"));
+
+    assertFalse(threads.isEmpty());
+    assertTrue(threads.stream().noneMatch(name -> name.startsWith("ForkJoinPool.commonPool")));
+    assertTrue(threads.stream().noneMatch(name -> name.equals(Thread.currentThread().getName())));
+  }
+}
@@ -0,0 +1,94 @@
+package com.example.tickets.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest
+{
+  private final CountDownLatch started = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  //blocks every hash until the test releases it
+  private final PasswordEncoder slowEncoder = new BCryptPasswordEncoder(4)
+  {
+    @Override
+    public String encode(CharSequence rawPassword)
+    {
+      started.countDown();
+      try {
+        release.await(10, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return "hash-" + rawPassword;
+    }
+  };
+
+  private final PasswordHasher hasher = new PasswordHasher(slowEncoder, 10, 1, 1, Duration.ofSeconds(3));
+
+  @AfterEach
+  void shutdown()
+  {
+    release.countDown();
+    hasher.shutdown();
+  }
+
+  /**
+   * Link to {@link PasswordHasher#encode}
+   */
+  @Test
+  void encode_RunsOnThePool()
+  {
+    release.countDown();
+
+    assertEquals("hash-secret", hasher.encode("secret"));
+  }
+
+  /**
+   * Link to {@link PasswordHasher#encode}
+   */
+  @Test
+  void encode_ThrowsServiceBusyException_IfTheQueueIsFull() throws Exception
+  {
+    //one hash runs, one waits in the queue
+    CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> hasher.encode("first"));
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> hasher.encode("second"));
+    while (0 == hasher.queued()) {
+      Thread.sleep(5);
+    }
+
+    ServiceBusyException thrown = assertThrows(ServiceBusyException.class, () -> hasher.encode("third"));
+    assertEquals(Duration.ofSeconds(3), thrown.getRetryAfter());
+
+    release.countDown();
+    assertEquals("hash-first", running.get(5, TimeUnit.SECONDS));
+    assertEquals("hash-second", queued.get(5, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Link to {@link PasswordHasher#upgradeEncoding}
+   */
+  @Test
+  void upgradeEncoding_ReportsEveryOtherCost()
+  {
+    BCryptPasswordEncoder cost4 = new BCryptPasswordEncoder(4);
+    BCryptPasswordEncoder cost10 = new BCryptPasswordEncoder(10);
+
+    assertTrue(hasher.upgradeEncoding(cost4.encode("secret")));
+    assertFalse(hasher.upgradeEncoding(cost10.encode("secret")));
+    assertTrue(hasher.upgradeEncoding("$2a$12$abcdefghijklmnopqrstuu"));
+    assertFalse(hasher.upgradeEncoding(null));
+    assertFalse(hasher.upgradeEncoding("plain"));
+  }
+}
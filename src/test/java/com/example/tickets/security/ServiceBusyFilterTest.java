@@ -0,0 +1,57 @@
+package com.example.tickets.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.util.NestedServletException;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceBusyFilterTest
+{
+  private final ServiceBusyFilter       filter   = new ServiceBusyFilter();
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  /**
+   * Link to {@link ServiceBusyFilter#doFilterInternal}
+   */
+  @Test
+  void serviceBusy_IsAnsweredWith503()
+  {
+    assertDoesNotThrow(() -> filter.doFilter(new MockHttpServletRequest(), response, (request, servletResponse) -> {
+      throw new ServiceBusyException("The server is busy, please try again later!", Duration.ofSeconds(2));
+    }));
+
+    assertEquals(503, response.getStatus());
+    assertEquals("2", response.getHeader("Retry-After"));
+  }
+
+  /**
+   * Link to {@link ServiceBusyFilter#doFilterInternal}
+   */
+  @Test
+  void serviceBusyOfAController_IsAnsweredWith503()
+  {
+    assertDoesNotThrow(() -> filter.doFilter(new MockHttpServletRequest(), response, (request, servletResponse) -> {
+      throw new NestedServletException("Request processing failed",
+          new ServiceBusyException("The server is busy, please try again later!", Duration.ofMillis(100)));
+    }));
+
+    assertEquals(503, response.getStatus());
+    assertEquals("1", response.getHeader("Retry-After"));
+  }
+
+  /**
+   * Link to {@link ServiceBusyFilter#doFilterInternal}
+   */
+  @Test
+  void otherExceptions_AreRethrown()
+  {
+    assertThrows(IllegalArgumentException.class,
+        () -> filter.doFilter(new MockHttpServletRequest(), response, (request, servletResponse) -> {
+          throw new IllegalArgumentException("Invalid user id!");
+        }));
+  }
+}
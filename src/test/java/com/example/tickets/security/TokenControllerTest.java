@@ -0,0 +1,63 @@
+package com.example.tickets.security;
+
+import com.example.tickets.bean.LoginToken;
+import com.example.tickets.enums.CardType;
+import com.example.tickets.enums.Role;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class TokenControllerTest
+{
+  private final TicketUserDetails user = new TicketUserDetails(1L, "ivan76", "abc123ABC", Role.USER,
+      CardType.ELDERLY);
+
+  private final TokenController tokenController = new TokenController(
+      new TokenService("secret", Duration.ofHours(1), new ObjectMapper(), Clock.systemUTC()));
+
+  /**
+   * Link to {@link TokenController#login}
+   */
+  @Test
+  void login_IssuesATokenForAPasswordLogin()
+  {
+    ResponseEntity<LoginToken> response = tokenController.login(
+        new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertNotNull(response.getBody());
+  }
+
+  /**
+   * Link to {@link TokenController#login}
+   */
+  @Test
+  void login_RefusesToRenewABearerToken()
+  {
+    ResponseEntity<LoginToken> response = tokenController.login(
+        new PreAuthenticatedAuthenticationToken(user, null, user.getAuthorities()));
+
+    assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+  }
+
+  /**
+   * Link to {@link TokenController#login}
+   */
+  @Test
+  void login_RefusesAnotherPrincipal()
+  {
+    ResponseEntity<LoginToken> response = tokenController.login(
+        new UsernamePasswordAuthenticationToken("ivan76", null, user.getAuthorities()));
+
+    assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+  }
+}
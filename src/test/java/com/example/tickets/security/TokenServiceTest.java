@@ -0,0 +1,71 @@
+package com.example.tickets.security;
+
+import com.example.tickets.bean.LoginToken;
+import com.example.tickets.enums.CardType;
+import com.example.tickets.enums.Role;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TokenServiceTest
+{
+  private static final Instant NOW = Instant.parse("2023-04-07T10:00:00Z");
+
+  private final TicketUserDetails user = new TicketUserDetails(1L, "ivan76", "abc123ABC", Role.USER,
+      CardType.ELDERLY);
+
+  /**
+   * Link to {@link TokenService#verify}
+   */
+  @Test
+  void verify_ReturnsThePrincipalOfAnIssuedToken()
+  {
+    TokenService tokenService = tokenService("secret", NOW);
+    LoginToken token = tokenService.issue(user);
+
+    TicketUserDetails principal = tokenService.verify(token.getToken());
+
+    assertNotNull(principal);
+    assertEquals(1L, principal.getId());
+    assertEquals("ivan76", principal.getUsername());
+    assertEquals(Role.USER, principal.getRole());
+    assertEquals(CardType.ELDERLY, principal.getTypeOfCard());
+    assertEquals(NOW.plus(Duration.ofHours(1)), token.getExpiresAt());
+  }
+
+  /**
+   * Link to {@link TokenService#verify}
+   */
+  @Test
+  void verify_RejectsATokenSignedWithAnotherSecret()
+  {
+    LoginToken token = tokenService("other secret", NOW).issue(user);
+
+    assertNull(tokenService("secret", NOW).verify(token.getToken()));
+    assertNull(tokenService("secret", NOW).verify("not a token"));
+  }
+
+  /**
+   * Link to {@link TokenService#verify}
+   */
+  @Test
+  void verify_RejectsAnExpiredToken()
+  {
+    LoginToken token = tokenService("secret", NOW).issue(user);
+
+    assertNull(tokenService("secret", NOW.plus(Duration.ofHours(1))).verify(token.getToken()));
+  }
+
+  private static TokenService tokenService(String secret, Instant now)
+  {
+    return new TokenService(secret, Duration.ofHours(1), new ObjectMapper(), Clock.fixed(now, ZoneOffset.UTC));
+  }
+}